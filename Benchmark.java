@@ -0,0 +1,415 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/** Benchmarks of Gitlet internals, run by hand with
+ *  java gitlet.Benchmark <NAME> [ARGS...].
+ * @author Neel Dhoundiyal **/
+public class Benchmark {
+
+    /** Nanoseconds in a millisecond. **/
+    private static final double NANOS_PER_MS = 1e6;
+
+    /** Number of untimed rounds run before the timed one. **/
+    private static final int WARMUP = 3;
+
+    /** The mergebase history merges two branches every this many
+     * commits. **/
+    private static final int MERGE_EVERY = 5;
+
+    /** Runs the benchmark named by ARGS[0] with the rest of ARGS.
+     * @param args : Benchmark name and its operands.**/
+    public static void main(String... args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: java gitlet.Benchmark "
+                    + "encoding [COMMITS] [FILES] | "
+                    + "ancestry [COMMITS] [WALKS] | "
+                    + "mergebase [COMMITS] [BRANCHES] [QUERIES] | "
+                    + "diff [LINES] [EDITS] | "
+                    + "difftree [FILES] [CHANGED]");
+            return;
+        }
+        switch (args[0]) {
+        case "encoding":
+            encoding(intArg(args, 1, 10000), intArg(args, 2, 100));
+            break;
+        case "ancestry":
+            ancestry(intArg(args, 1, 10000), intArg(args, 2, 10));
+            break;
+        case "mergebase":
+            mergeBase(intArg(args, 1, 100000), intArg(args, 2, 8),
+                    intArg(args, 3, 1000));
+            break;
+        case "diff":
+            diff(intArg(args, 1, 200000), intArg(args, 2, 2000));
+            break;
+        case "difftree":
+            diffTree(intArg(args, 1, 100000), intArg(args, 2, 100));
+            break;
+        default:
+            System.out.println("No benchmark with that name exists.");
+        }
+    }
+
+    /** Returns ARGS[I] as an int, or DEFAULT if it is not given.
+     * @param args : String[].
+     * @param i : int.
+     * @param dflt : int.**/
+    private static int intArg(String[] args, int i, int dflt) {
+        return args.length > i ? Integer.parseInt(args[i]) : dflt;
+    }
+
+    /** Compares Java serialization of N commits, each with a tree of
+     * FILES files in one directory, with Commit.encode and Commit.decode.
+     * Each commit is timed together with its two trees, and sizes are
+     * reported per record: 3 * N records in all.
+     * @param n : int.
+     * @param files : int.**/
+    static void encoding(int n, int files) throws IOException,
+            ClassNotFoundException {
+        ArrayList<Serializable> commits = new ArrayList<>();
+        String parent = null;
+        for (int i = 0; i < n; i += 1) {
+            TreeMap<String, String> blobs = new TreeMap<>();
+            for (int j = 0; j < files; j += 1) {
+                blobs.put("file" + j + ".txt",
+                        ObjectStore.BLOB + Utils.sha1("" + i + "/" + j));
+            }
+            Tree src = new Tree(blobs);
+            TreeMap<String, String> top = new TreeMap<>();
+            top.put("src", src.getHashCodeTree());
+            Tree root = new Tree(top);
+            Commit c = new Commit("commit " + i, parent, "master",
+                    root.getHashCodeTree());
+            parent = c.getHashCodeCommit();
+            commits.add(c);
+            commits.add(root);
+            commits.add(src);
+        }
+        for (int round = 0; round <= WARMUP; round += 1) {
+            long bytes = 0;
+            long start = System.nanoTime();
+            ArrayList<byte[]> ser = new ArrayList<>();
+            for (Serializable c : commits) {
+                byte[] b = Utils.serialize(c);
+                bytes += b.length;
+                ser.add(b);
+            }
+            long serialize = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (byte[] b : ser) {
+                ObjectInputStream in =
+                        new ObjectInputStream(new ByteArrayInputStream(b));
+                in.readObject();
+                in.close();
+            }
+            long deserialize = System.nanoTime() - start;
+            long encBytes = 0;
+            start = System.nanoTime();
+            ArrayList<byte[]> enc = new ArrayList<>();
+            for (Serializable c : commits) {
+                byte[] b = c instanceof Commit ? ((Commit) c).encode()
+                        : ((Tree) c).encode();
+                encBytes += b.length;
+                enc.add(b);
+            }
+            long encode = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (byte[] b : enc) {
+                if (b[0] == Commit.TAG) {
+                    Commit.decode(b);
+                } else {
+                    Tree.decode(b);
+                }
+            }
+            long decode = System.nanoTime() - start;
+            if (round == WARMUP) {
+                report("java serialization", commits.size(), bytes, serialize,
+                        deserialize);
+                report("binary encoding", commits.size(), encBytes, encode,
+                        decode);
+            }
+        }
+    }
+
+    /** Compares WALKS walks over a chain of N commits in a scratch store
+     * decoding every commit from the store, as readCommit used to, with
+     * the same walks through a CommitCache.
+     * @param n : int.
+     * @param walks : int.**/
+    static void ancestry(int n, int walks) throws IOException {
+        Path dir = Files.createTempDirectory("gitlet-bench");
+        try {
+            ObjectStore store = ObjectStore.create(
+                    new File(dir.toFile(), "objects"), Codec.DEFAULT);
+            Commit c = new Commit();
+            store.put(c.getHashCodeCommit(), c.encode());
+            for (int i = 0; i < n; i += 1) {
+                c = new Commit("commit " + i, c.getHashCodeCommit(),
+                        "master", Tree.EMPTY);
+                store.put(c.getHashCodeCommit(), c.encode());
+            }
+            String head = c.getHashCodeCommit();
+            long start = System.nanoTime();
+            for (int w = 0; w < walks; w += 1) {
+                for (String id = head; id != null;
+                     id = Commit.decode(store.getBytes(id)).getParent()) {
+                    continue;
+                }
+            }
+            long uncached = System.nanoTime() - start;
+            CommitCache cache = new CommitCache(store, CommitCache.CAPACITY);
+            start = System.nanoTime();
+            for (int w = 0; w < walks; w += 1) {
+                for (String id = head; id != null;
+                     id = cache.get(id).getParent()) {
+                    continue;
+                }
+            }
+            long cached = System.nanoTime() - start;
+            System.out.printf("%d walks of %d commits: store %9.1f ms  "
+                    + "cache %9.1f ms  (%d hits, %d misses, %d kept)%n",
+                    walks, n + 1, uncached / NANOS_PER_MS,
+                    cached / NANOS_PER_MS, cache.hits(), cache.misses(),
+                    cache.size());
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /** Times CommitGraph.mergeBases on a history of N commits spread over
+     * BRANCHES branches that merge into each other every few commits,
+     * for QUERIES pairs of branch heads and QUERIES pairs of arbitrary
+     * commits.
+     * @param n : int.
+     * @param branches : int.
+     * @param queries : int.**/
+    static void mergeBase(int n, int branches, int queries)
+            throws IOException {
+        Path dir = Files.createTempDirectory("gitlet-bench");
+        try {
+            Random rand = new Random(n);
+            ArrayList<Commit> commits = new ArrayList<>();
+            commits.add(new Commit());
+            String[] tips = new String[branches];
+            Arrays.fill(tips, commits.get(0).getHashCodeCommit());
+            for (int i = 1; i < n; i += 1) {
+                int r = rand.nextInt(branches);
+                int s = rand.nextInt(branches);
+                Commit c;
+                if (i % MERGE_EVERY == 0 && r != s) {
+                    c = new Commit("merge " + i, tips[r], tips[s],
+                            "b" + r, Tree.EMPTY);
+                } else {
+                    c = new Commit("commit " + i, tips[r], "b" + r,
+                            Tree.EMPTY);
+                }
+                tips[r] = c.getHashCodeCommit();
+                commits.add(c);
+            }
+            long start = System.nanoTime();
+            CommitGraph graph = new CommitGraph(dir.toFile());
+            graph.add(commits);
+            long build = System.nanoTime() - start;
+            System.out.printf("graph of %d commits written in %.1f ms%n",
+                    n, build / NANOS_PER_MS);
+            int[] heads = new int[branches];
+            for (int i = 0; i < branches; i += 1) {
+                heads[i] = graph.position(tips[i]);
+            }
+            int[] any = new int[2 * queries];
+            for (int i = 0; i < any.length; i += 1) {
+                any[i] = graph.position(commits.get(rand.nextInt(n))
+                        .getHashCodeCommit());
+            }
+            for (int round = 0; round <= WARMUP; round += 1) {
+                long tipTime = 0;
+                long anyTime = 0;
+                long worst = 0;
+                int crisscross = 0;
+                for (int q = 0; q < queries; q += 1) {
+                    long t = System.nanoTime();
+                    List<Integer> bases = graph.mergeBases(
+                            heads[rand.nextInt(branches)],
+                            heads[rand.nextInt(branches)]);
+                    t = System.nanoTime() - t;
+                    tipTime += t;
+                    worst = Math.max(worst, t);
+                    crisscross += bases.size() > 1 ? 1 : 0;
+                    t = System.nanoTime();
+                    bases = graph.mergeBases(any[2 * q], any[2 * q + 1]);
+                    t = System.nanoTime() - t;
+                    anyTime += t;
+                    worst = Math.max(worst, t);
+                    crisscross += bases.size() > 1 ? 1 : 0;
+                }
+                if (round == WARMUP) {
+                    System.out.printf("%d queries: heads %.3f ms/query, "
+                            + "any commits %.3f ms/query, worst %.1f ms, "
+                            + "%d with several bases%n", 2 * queries,
+                            tipTime / NANOS_PER_MS / queries,
+                            anyTime / NANOS_PER_MS / queries,
+                            worst / NANOS_PER_MS, crisscross);
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /** Times Diff.matches and Diff.unified on a file of N lines and a
+     * copy of it with EDITS lines changed, inserted or deleted at random.
+     * @param n : int.
+     * @param edits : int.**/
+    static void diff(int n, int edits) throws IOException {
+        Random rand = new Random(n);
+        String[] a = new String[n];
+        for (int i = 0; i < n; i += 1) {
+            a[i] = "line " + rand.nextInt(n) + "\n";
+        }
+        ArrayList<String> b = new ArrayList<>(Arrays.asList(a));
+        for (int e = 0; e < edits; e += 1) {
+            int i = rand.nextInt(b.size() + 1);
+            switch (rand.nextInt(3)) {
+            case 0:
+                b.add(i, "inserted " + e + "\n");
+                break;
+            case 1:
+                if (i < b.size()) {
+                    b.remove(i);
+                }
+                break;
+            default:
+                if (i < b.size()) {
+                    b.set(i, "changed " + e + "\n");
+                }
+            }
+        }
+        String[] bs = b.toArray(new String[0]);
+        for (int round = 0; round <= WARMUP; round += 1) {
+            long start = System.nanoTime();
+            List<int[]> blocks = Diff.matches(a, bs);
+            long match = System.nanoTime() - start;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            start = System.nanoTime();
+            Diff.unified("a/f", "b/f", a, bs, out);
+            long unified = System.nanoTime() - start;
+            if (round == WARMUP) {
+                System.out.printf("%d lines, %d edits: matches %.1f ms "
+                        + "(%d blocks), unified %.1f ms (%d bytes)%n", n,
+                        edits, match / NANOS_PER_MS, blocks.size(),
+                        unified / NANOS_PER_MS, out.size());
+            }
+        }
+    }
+
+    /** Times finding and diffing the CHANGED files that differ between
+     * two trees of N files each, spread over nested directories, in a
+     * scratch store.
+     * @param n : int.
+     * @param changed : int.**/
+    static void diffTree(int n, int changed) throws IOException {
+        Path dir = Files.createTempDirectory("gitlet-bench");
+        try {
+            ObjectStore store = ObjectStore.create(
+                    new File(dir.toFile(), "objects"), Codec.DEFAULT);
+            Random rand = new Random(n);
+            TreeMap<String, String> files = new TreeMap<>();
+            for (int i = 0; i < n; i += 1) {
+                String name = "d" + (i % 100) + "/e" + (i % 7) + "/f" + i;
+                files.put(name, blob(store, name, "file " + i + "\n"));
+            }
+            String a = Tree.update(store, null, files);
+            TreeMap<String, String> edits = new TreeMap<>();
+            for (int i = 0; i < changed; i += 1) {
+                int k = rand.nextInt(n);
+                String name = "d" + (k % 100) + "/e" + (k % 7) + "/f" + k;
+                edits.put(name, blob(store, name,
+                        "file " + k + "\nedit " + i + "\n"));
+            }
+            String b = Tree.update(store, a, edits);
+            for (int round = 0; round <= WARMUP; round += 1) {
+                long start = System.nanoTime();
+                TreeMap<String, String[]> changes = new TreeMap<>();
+                Tree.diff(store, a, b, "", changes);
+                long find = System.nanoTime() - start;
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                start = System.nanoTime();
+                for (Map.Entry<String, String[]> e : changes.entrySet()) {
+                    Diff.unified("a/" + e.getKey(), "b/" + e.getKey(),
+                            text(store, e.getValue()[0]),
+                            text(store, e.getValue()[1]), out);
+                }
+                long diff = System.nanoTime() - start;
+                if (round == WARMUP) {
+                    System.out.printf("%d files, %d changed: tree diff "
+                            + "%.1f ms, unified %.1f ms (%d bytes)%n", n,
+                            changes.size(), find / NANOS_PER_MS,
+                            diff / NANOS_PER_MS, out.size());
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /** Stores CONTENT as the blob of the file NAME in STORE and returns
+     * its hash code.
+     * @param store : ObjectStore.
+     * @param name : String.
+     * @param content : String.**/
+    private static String blob(ObjectStore store, String name,
+                               String content) {
+        String id = ObjectStore.BLOB + Utils.sha1(name, content);
+        store.put(id, content.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    /** Returns the lines of the blob ID in STORE.
+     * @param store : ObjectStore.
+     * @param id : String.**/
+    private static String[] text(ObjectStore store, String id) {
+        return Diff.lines(new String(store.getBytes(id),
+                StandardCharsets.UTF_8));
+    }
+
+    /** Prints one line of results for N records of BYTES total size,
+     * written in WRITE and read in READ nanoseconds.
+     * @param name : String.
+     * @param n : int.
+     * @param bytes : long.
+     * @param write : long.
+     * @param read : long.**/
+    private static void report(String name, int n, long bytes,
+                               long write, long read) {
+        System.out.printf("%-20s %8d records %12d bytes (%6d/record) "
+                + "write %9.1f ms  read %9.1f ms%n", name, n, bytes,
+                bytes / n, write / NANOS_PER_MS, read / NANOS_PER_MS);
+    }
+
+}
@@ -1,43 +1,100 @@
 package gitlet;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /** Represents a Blob.
  * @author Neel Dhoundiyal **/
 public class Blob implements Serializable {
 
+    /** Size of the buffer used to hash files. **/
+    private static final int HASH_BUFFER = 1 << 16;
+
+    /** Per-thread buffer reused for every file hashed on that thread. **/
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() ->
+                    ByteBuffer.allocateDirect(HASH_BUFFER));
+
     /** Stores the name of the file. **/
     private String _name;
 
     /** Stores the hash code. **/
     private String _hashCodeBlob;
 
-    /** String content of the file. **/
-    private String _content;
+    /** Stores the byte stream values in an array. Loaded on first use,
+     * so that hashing a file never holds all of it in memory. **/
+    private transient byte[] _contentStream;
 
-    /** Stores the byte stream values in an array. **/
-    private byte[] _contentStream;
+    /** String content of the file, decoded from _contentStream the first
+     * time it is asked for. **/
+    private transient String _content;
 
     /** Blob constructor.
      * @param pathname  : Reps the pathname of the incoming file.**/
     public Blob(String pathname) {
-        File f = new File(pathname);
         _name = pathname;
-        _content = Utils.readContentsAsString(f);
-        _contentStream = Utils.readContents(f);
-        _hashCodeBlob =  "b" + Utils.sha1(hashList());
+        _hashCodeBlob = "b" + hash(pathname, new File(pathname));
+    }
+
+    /** Blob constructor for a blob read back from the object store.
+     * @param name : Reps the name of the file.
+     * @param hashCode : Reps the hash code of the blob.
+     * @param contents : Reps the bytes of the file.**/
+    Blob(String name, String hashCode, byte[] contents) {
+        _name = name;
+        _hashCodeBlob = hashCode;
+        _contentStream = contents;
+    }
+
+    /** Returns the SHA-1 hash of NAME followed by the bytes of F, read
+     * through a FileChannel in fixed-size chunks. The result is the same
+     * as Utils.sha1(name, contents).
+     * @param name : Reps the name of the file.
+     * @param f : Reps the file.**/
+    static String hash(String name, File f) {
+        try (FileChannel in = FileChannel.open(f.toPath())) {
+            MessageDigest md = digest(name);
+            ByteBuffer buf = BUFFER.get();
+            buf.clear();
+            while (in.read(buf) != -1) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+            return hex(md);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
 
+    /** Returns a SHA-1 digest that has been given NAME, ready for the
+     * bytes of the file.
+     * @param name : Reps the name of the file.**/
+    static MessageDigest digest(String name) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(name.getBytes(StandardCharsets.UTF_8));
+            return md;
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support "
+                    + "SHA-1");
+        }
     }
 
-    /** Returns the list that will be used to generate the SHA-1 code. **/
-    private ArrayList<Object> hashList() {
-        ArrayList<Object> l = new ArrayList<>();
-        l.add(_name);
-        l.add(_content);
-        l.add(_contentStream);
-        return l;
+    /** Returns the hash MD has computed, in hexadecimal.
+     * @param md : MessageDigest.**/
+    static String hex(MessageDigest md) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : md.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
     }
 
     /** Returns the name of the blob. **/
@@ -50,13 +107,21 @@ public class Blob implements Serializable {
         return _hashCodeBlob;
     }
 
-    /** Returns the content of the blob. **/
+    /** Returns the content of the blob as text. Only merges need this,
+     * so it is decoded lazily. **/
     public String getContent() {
+        if (_content == null) {
+            _content = new String(getContentStream(),
+                    StandardCharsets.UTF_8);
+        }
         return _content;
     }
 
     /** Returns the content stream of the blob. **/
     public byte[] getContentStream() {
+        if (_contentStream == null) {
+            _contentStream = Utils.readContents(new File(_name));
+        }
         return _contentStream;
     }
 
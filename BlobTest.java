@@ -0,0 +1,51 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+
+/** Tests of Blob.
+ *  @author Neel Dhoundiyal
+ */
+public class BlobTest {
+
+    /** A blob keeps the one byte array it was given, and its text is
+     *  decoded from those bytes. **/
+    public static void testSingleCopyOfContents() {
+        byte[] bytes = "h\u00e9llo".getBytes(StandardCharsets.UTF_8);
+        Blob b = new Blob("a.txt", ObjectStore.BLOB + Utils.sha1(bytes),
+                bytes);
+        assertTrue("same array", b.getContentStream() == bytes);
+        assertEquals("text", "h\u00e9llo", b.getContent());
+    }
+
+    /** Hashing a file larger than the hashing buffer gives the SHA-1 of
+     *  its name followed by all of its bytes. **/
+    public static void testStreamingHash() {
+        File dir = UnitTest.tempDir();
+        File f = new File(dir, "big.bin");
+        byte[] bytes = new byte[(1 << 18) + 7];
+        for (int i = 0; i < bytes.length; i += 1) {
+            bytes[i] = (byte) (i * 31);
+        }
+        Utils.writeContents(f, bytes);
+        assertEquals("hash", Utils.sha1("big.bin", bytes),
+                Blob.hash("big.bin", f));
+        assertEquals("blob id", ObjectStore.BLOB
+                + Utils.sha1(f.getPath(), bytes),
+                new Blob(f.getPath()).getHashCodeBlob());
+    }
+
+    /** A blob made from a file reads its contents only when asked. **/
+    public static void testContentsReadOnDemand() {
+        File dir = UnitTest.tempDir();
+        File f = new File(dir, "a.txt");
+        Utils.writeContents(f, "first");
+        Blob b = new Blob(f.getPath());
+        Utils.writeContents(f, "second");
+        assertEquals("read when asked", "second", b.getContent());
+    }
+
+}
@@ -0,0 +1,81 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** The compression codecs that objects can be stored with. A repo picks
+ * one at init and every object it writes goes through it.
+ * @author Neel Dhoundiyal **/
+enum Codec {
+
+    /** Stores objects as they are. **/
+    IDENTITY {
+        @Override
+        OutputStream encode(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        InputStream decode(InputStream in) {
+            return in;
+        }
+    },
+
+    /** Compresses objects with java.util.zip's Deflater. **/
+    DEFLATE {
+        @Override
+        OutputStream encode(OutputStream out) {
+            return new DeflaterOutputStream(out, new Deflater(), BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    def.end();
+                }
+            };
+        }
+
+        @Override
+        InputStream decode(InputStream in) {
+            return new InflaterInputStream(in, new Inflater(), BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inf.end();
+                }
+            };
+        }
+    };
+
+    /** Size of the buffers used while compressing. **/
+    private static final int BUFFER = 1 << 16;
+
+    /** Codec used by repos that do not ask for one. **/
+    static final Codec DEFAULT = DEFLATE;
+
+    /** Returns a stream that compresses what is written to it into OUT.
+     * Closing it closes OUT.
+     * @param out : Stream receiving the stored bytes.**/
+    abstract OutputStream encode(OutputStream out);
+
+    /** Returns a stream of the original bytes of what is read from IN.
+     * Closing it closes IN.
+     * @param in : Stream of the stored bytes.**/
+    abstract InputStream decode(InputStream in);
+
+    /** Returns the codec called NAME, or null if there is none.
+     * @param name : String.**/
+    static Codec forName(String name) {
+        for (Codec c : values()) {
+            if (c.name().equalsIgnoreCase(name.trim())) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,64 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+
+/** Tests of Codec and of stores written through one.
+ *  @author Neel Dhoundiyal
+ */
+public class CodecTest {
+
+    /** Returns DATA encoded with CODEC.
+     *  @param codec : Codec.
+     *  @param data : byte[].*/
+    static byte[] encode(Codec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encode(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Every codec decodes what it encoded. **/
+    public static void testRoundTrip() throws IOException {
+        byte[] data = ObjectStoreTest.binary(100000);
+        for (Codec c : Codec.values()) {
+            byte[] coded = encode(c, data);
+            try (InputStream in = c.decode(
+                    new ByteArrayInputStream(coded))) {
+                assertTrue(c.name(), Arrays.equals(data, in.readAllBytes()));
+            }
+        }
+    }
+
+    /** Codecs are found by name, whatever its case. **/
+    public static void testForName() {
+        for (Codec c : Codec.values()) {
+            assertEquals(c.name(), c, Codec.forName(c.name().toLowerCase()));
+        }
+    }
+
+    /** A DEFLATE store keeps repetitive objects compressed on disk and
+     *  reads them back whole. **/
+    public static void testStoreCompresses() {
+        File dir = new File(UnitTest.tempDir(), ".gitlet/objects");
+        ObjectStore s = ObjectStore.create(dir, Codec.DEFLATE);
+        byte[] data = new byte[100000];
+        String id = ObjectStore.BLOB + Utils.sha1(data);
+        s.put(id, data);
+        File stored = Utils.join(dir, id.substring(1, 3), id);
+        assertTrue("compressed", stored.length() < data.length / 10);
+        assertTrue("read back", Arrays.equals(data, s.getBytes(id)));
+        assertEquals("codec kept", Codec.DEFLATE,
+                new ObjectStore(dir).codec());
+    }
+
+}
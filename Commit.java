@@ -1,18 +1,33 @@
 package gitlet;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.TreeMap;
 
 
 /** Represents a Commit in a Gitlet repo.
  * @author Neel Dhoundiyal **/
 public class Commit implements Serializable {
 
-    /** Stores the mapping between file names and blob references. **/
-    private HashMap<String, Blob> _blobs;
+    /** Tag of encoded commits. **/
+    static final int TAG = 'C';
+
+    /** Format version of encoded commits. Version 1 listed every blob
+     * of the commit; version 2 names the root Tree instead. **/
+    static final int VERSION = 2;
+
+    /** Pattern of time stamps: local time and its zone offset, as in
+     * Thu Nov 09 20:00:05 2017 -0800. **/
+    static final String TIME_FORMAT = "EEE MMM dd HH:mm:ss yyyy Z";
+
+    /** Stores the hash code of the root Tree of the commit, which maps
+     * the files and directories of the commit to their hash codes. **/
+    private String _tree;
+
+    /** Files and blob hash codes of a version 1 commit, whose Tree is
+     * not built yet, or null. **/
+    private transient TreeMap<String, String> _legacyBlobs;
 
     /** Stores the log message of the commit. **/
     private String _logMessage;
@@ -43,28 +58,24 @@ public class Commit implements Serializable {
         _parent = null;
         _parentMerge = null;
         _merge = false;
-        ArrayList<Object> initial = new ArrayList<>();
-        initial.add(_timeStamp);
-        initial.add(_logMessage);
-        _hashCodeCommit = "c" + Utils.sha1(initial);
-        _blobs = new HashMap<>();
+        _tree = Tree.EMPTY;
+        _hashCodeCommit = contentHash();
     }
 
     /** Commit Constructor.
      * @param p : Reps the parent.
      * @param m : Reps the log message.
      * @param b : Reps the branch.
-     * @param  blobs : Reps the blobs for the commit.**/
-    public Commit(String m,  String p, String b,
-                  HashMap<String, Blob> blobs) {
+     * @param tree : Reps the root tree of the commit.**/
+    public Commit(String m,  String p, String b, String tree) {
         _logMessage = m;
         _timeStamp = timeStampNow();
         _parent = p;
         _parentMerge = null;
         _branch = b;
-        _blobs = blobs;
+        _tree = tree;
         _merge = false;
-        _hashCodeCommit = "c" + Utils.sha1(hashList());
+        _hashCodeCommit = contentHash();
 
     }
 
@@ -73,38 +84,98 @@ public class Commit implements Serializable {
      * @param p2 : Reps the second parent.
      * @param m : Reps the log message.
      * @param b : Reps the branch.
-     * @param  blobs : Reps the blobs for the commit.**/
-    public Commit(String m,  String p, String p2, String b,
-                  HashMap<String, Blob> blobs) {
+     * @param tree : Reps the root tree of the commit.**/
+    public Commit(String m,  String p, String p2, String b, String tree) {
         _logMessage = m;
         _timeStamp = timeStampNow();
         _parent = p;
         _branch = b;
-        _blobs = blobs;
+        _tree = tree;
         _merge = true;
         _parentMerge = p2;
-        ArrayList<Object>  x = hashList();
-        x.add(_parentMerge);
-        _hashCodeCommit = "c" + Utils.sha1(x);
+        _hashCodeCommit = contentHash();
+
+    }
+
+    /** Commit read back from its encoded form.
+     * @param in : Reps the decoder of the record.**/
+    private Commit(Decoder in) {
+        _hashCodeCommit = in.readHash(ObjectStore.COMMIT);
+        _logMessage = in.readString();
+        _timeStamp = in.readString();
+        _branch = in.readString();
+        _parent = in.readOptionalHash(ObjectStore.COMMIT);
+        _parentMerge = in.readOptionalHash(ObjectStore.COMMIT);
+        _merge = in.readBoolean();
+        if (in.version() == 1) {
+            int n = (int) in.readVarint();
+            _legacyBlobs = new TreeMap<>();
+            for (int i = 0; i < n; i += 1) {
+                String name = in.readString();
+                _legacyBlobs.put(name, in.readHash(ObjectStore.BLOB));
+            }
+        } else {
+            _tree = in.readHash(ObjectStore.TREE);
+        }
+    }
 
+    /** Returns the commit encoded in DATA, reading any older version: a
+     * version 1 commit gets the Tree of its files written to STORE.
+     * @param data : byte[].
+     * @param store : ObjectStore.**/
+    static Commit decode(byte[] data, ObjectStore store) {
+        Commit c = decode(data);
+        if (c._legacyBlobs != null) {
+            c._tree = Tree.update(store, null, c._legacyBlobs);
+            c._legacyBlobs = null;
+        }
+        return c;
     }
 
-    /** Returns the list that will be used to generate the SHA-1 code. **/
-    private ArrayList<Object> hashList() {
-        ArrayList<Object> l = new ArrayList<>();
-        l.add(_logMessage);
-        l.add(_branch);
-        l.add(_timeStamp);
-        return l;
+    /** Returns the commit encoded in DATA. A version 1 commit has no
+     * tree until decoded with a store.
+     * @param data : byte[].**/
+    static Commit decode(byte[] data) {
+        return new Commit(new Decoder(data, TAG, VERSION));
     }
 
-    /** Returns the current time stamp. **/
+    /** Returns the encoded form of this commit: its hash code, then its
+     * other fields in order, ending with the hash code of its root tree. **/
+    byte[] encode() {
+        Encoder out = new Encoder(TAG, VERSION);
+        out.writeHash(_hashCodeCommit);
+        writeFields(out);
+        return out.toByteArray();
+    }
+
+    /** Writes every field but the hash code to OUT.
+     * @param out : Encoder.**/
+    private void writeFields(Encoder out) {
+        out.writeString(_logMessage);
+        out.writeString(_timeStamp);
+        out.writeString(_branch);
+        out.writeOptionalHash(_parent);
+        out.writeOptionalHash(_parentMerge);
+        out.writeBoolean(_merge);
+        out.writeHash(_tree);
+    }
+
+    /** Returns the hash code of this commit: the SHA-1 of its encoded
+     * fields, tree and parents included, so that two commits share a
+     * hash code only if they are the same commit. **/
+    private String contentHash() {
+        Encoder out = new Encoder(TAG, VERSION);
+        writeFields(out);
+        return ObjectStore.COMMIT + Utils.sha1(out.toByteArray());
+    }
+
+    /** Returns the current time stamp: the local time, with the offset
+     * of the local time zone, so that getTime reads back the instant it
+     * was made. **/
     private String timeStampNow() {
         ZonedDateTime current = ZonedDateTime.now();
-        DateTimeFormatter format = DateTimeFormatter.
-                                   ofPattern("EEE MMM dd HH:mm:ss yyyy");
-        String strDate = current.format(format) + " -0800";
-        return strDate;
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(TIME_FORMAT);
+        return current.format(format);
     }
 
     /** Returns the log message. **/
@@ -117,6 +188,12 @@ public class Commit implements Serializable {
         return _timeStamp;
     }
 
+    /** Returns the time of the commit in seconds since the epoch. **/
+    long getTime() {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(TIME_FORMAT);
+        return ZonedDateTime.parse(_timeStamp, format).toEpochSecond();
+    }
+
     /** Returns the hash code of the parent. **/
     String getParent() {
         return _parent;
@@ -132,9 +209,9 @@ public class Commit implements Serializable {
         return _branch;
     }
 
-    /** Returns all the blobs of the commit. **/
-    HashMap<String, Blob> getBlobs() {
-        return _blobs;
+    /** Returns the hash code of the root tree of the commit. **/
+    String getTree() {
+        return _tree;
     }
 
     /** Returns the hash code of the commit. **/
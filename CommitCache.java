@@ -0,0 +1,101 @@
+package gitlet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A bounded cache of decoded commits in front of an ObjectStore. Commits
+ * never change once written, so a cached commit is always current; when
+ * the cache is full the least recently used commit is evicted. Walks over
+ * the same ancestry, whether within one command or across the commands
+ * of a long-running process, decode each commit only once.
+ * @author Neel Dhoundiyal **/
+class CommitCache {
+
+    /** Number of commits kept by default. A decoded commit holds only its
+     * fields and the hash code of its tree, so this many stay within a
+     * few tens of megabytes. **/
+    static final int CAPACITY = 1 << 16;
+
+    /** Store the commits are read from. **/
+    private ObjectStore _store;
+
+    /** Cached commits in least to most recently used order. **/
+    private LinkedHashMap<String, Commit> _commits;
+
+    /** Number of lookups answered from the cache. **/
+    private long _hits;
+
+    /** Number of lookups that had to read the store. **/
+    private long _misses;
+
+    /** Cache of at most CAPACITY commits read from STORE.
+     * @param store : Reps the store holding the commits.
+     * @param capacity : Reps the largest number of commits kept.**/
+    CommitCache(ObjectStore store, int capacity) {
+        _store = store;
+        _commits = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Commit> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns the commit ID, or null if there is no such commit. The
+     * commit is read and decoded without holding the cache's lock, so
+     * threads missing on different commits do not wait on each other;
+     * two threads missing on the same one both decode it, and the first
+     * to finish is kept.
+     * @param id : String id.**/
+    Commit get(String id) {
+        synchronized (this) {
+            Commit c = _commits.get(id);
+            if (c != null) {
+                _hits += 1;
+                return c;
+            }
+            _misses += 1;
+        }
+        if (!_store.contains(id)) {
+            return null;
+        }
+        Commit c = Commit.decode(_store.getBytes(id), _store);
+        synchronized (this) {
+            Commit other = _commits.putIfAbsent(id, c);
+            return other == null ? c : other;
+        }
+    }
+
+    /** Adds the commit C, just written to the store, to the cache.
+     * @param c : Commit.**/
+    synchronized void put(Commit c) {
+        _commits.put(c.getHashCodeCommit(), c);
+    }
+
+    /** Adds every commit in OTHER to the cache.
+     * @param other : CommitCache.**/
+    void putAll(CommitCache other) {
+        synchronized (other) {
+            for (Commit c : other._commits.values()) {
+                put(c);
+            }
+        }
+    }
+
+    /** Returns the number of lookups answered from the cache. **/
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Returns the number of lookups that had to read the store. **/
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /** Returns the number of commits in the cache. **/
+    synchronized int size() {
+        return _commits.size();
+    }
+
+}
@@ -0,0 +1,110 @@
+package gitlet;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+
+/** Tests of CommitCache.
+ *  @author Neel Dhoundiyal
+ */
+public class CommitCacheTest {
+
+    /** Returns the ids of N commits, each the child of the one before,
+     *  written to STORE.
+     *  @param store : ObjectStore.
+     *  @param n : int.*/
+    static String[] chain(ObjectStore store, int n) {
+        String[] ids = new String[n];
+        Commit c = new Commit();
+        for (int i = 0; i < n; i += 1) {
+            store.put(c.getHashCodeCommit(), c.encode());
+            ids[i] = c.getHashCodeCommit();
+            c = new Commit("commit " + i, ids[i], "master", Tree.EMPTY);
+        }
+        return ids;
+    }
+
+    /** A commit is read from the store once and then served from the
+     *  cache; a missing one is a miss that returns null. **/
+    public static void testHitsAndMisses() {
+        ObjectStore store = ObjectStoreTest.store();
+        String[] ids = chain(store, 3);
+        CommitCache cache = new CommitCache(store, 10);
+        for (int pass = 0; pass < 3; pass += 1) {
+            for (String id : ids) {
+                assertEquals("id", id, cache.get(id).getHashCodeCommit());
+            }
+        }
+        assertEquals("misses", 3L, cache.misses());
+        assertEquals("hits", 6L, cache.hits());
+        assertTrue("missing", cache.get("c" + Utils.sha1("none")) == null);
+        assertEquals("missing is a miss", 4L, cache.misses());
+        assertEquals("size", 3, cache.size());
+    }
+
+    /** A full cache evicts its least recently used commit. **/
+    public static void testLeastRecentlyUsedEvicted() {
+        ObjectStore store = ObjectStoreTest.store();
+        String[] ids = chain(store, 3);
+        CommitCache cache = new CommitCache(store, 2);
+        cache.get(ids[0]);
+        cache.get(ids[1]);
+        cache.get(ids[0]);
+        cache.get(ids[2]);
+        assertEquals("bounded", 2, cache.size());
+        long misses = cache.misses();
+        cache.get(ids[0]);
+        assertEquals("recently used kept", misses, cache.misses());
+        cache.get(ids[1]);
+        assertEquals("least recently used evicted", misses + 1,
+                cache.misses());
+    }
+
+    /** Threads reading the same commits at once all get them, and end
+     *  up sharing one decoded copy of each. **/
+    public static void testConcurrentGets() throws InterruptedException {
+        ObjectStore store = ObjectStoreTest.store();
+        String[] ids = chain(store, 200);
+        CommitCache cache = new CommitCache(store, 1000);
+        Commit[][] seen = new Commit[8][ids.length];
+        Thread[] threads = new Thread[seen.length];
+        for (int t = 0; t < threads.length; t += 1) {
+            Commit[] mine = seen[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < ids.length; i += 1) {
+                    mine[i] = cache.get(ids[i]);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (int i = 0; i < ids.length; i += 1) {
+            Commit c = cache.get(ids[i]);
+            assertEquals("id", ids[i], c.getHashCodeCommit());
+            for (Commit[] mine : seen) {
+                assertEquals("decoded " + i, ids[i],
+                        mine[i].getHashCodeCommit());
+            }
+        }
+        assertEquals("size", ids.length, cache.size());
+        assertEquals("lookups", (long) (seen.length + 1) * ids.length,
+                cache.hits() + cache.misses());
+    }
+
+    /** A commit put after it is written is a hit, and putAll copies
+     *  every commit of another cache. **/
+    public static void testPut() {
+        ObjectStore store = ObjectStoreTest.store();
+        String[] ids = chain(store, 2);
+        CommitCache cache = new CommitCache(store, 10);
+        cache.put(Commit.decode(store.getBytes(ids[1])));
+        cache.get(ids[1]);
+        assertEquals("put is a hit", 0L, cache.misses());
+        CommitCache other = new CommitCache(store, 10);
+        other.putAll(cache);
+        other.get(ids[1]);
+        assertEquals("copied", 0L, other.misses());
+    }
+
+}
@@ -0,0 +1,575 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/** The commit graph: for every commit, the positions of its parents, its
+ * generation number (one more than the largest generation of its parents,
+ * 1 for a root) and its commit time, so that ancestry is walked over
+ * integers without decoding any Commit. It is kept in .gitlet/graph as a
+ * chain of memory-mapped layers, each sorted by hash code. Every commit
+ * adds a small layer on top, and a layer is merged into the one below it
+ * once it is at least half that size, so there are only logarithmically
+ * many layers and each commit is rewritten only logarithmically often.
+ * A commit's position is its index within its layer plus the number of
+ * commits in the layers below.
+ * @author Neel Dhoundiyal **/
+class CommitGraph {
+
+    /** Position standing for no commit. **/
+    static final int NONE = -1;
+
+    /** First int of every layer file. **/
+    private static final int MAGIC = 0x474c4347;
+
+    /** Version of the layer format. **/
+    private static final int VERSION = 1;
+
+    /** Length of a hash code. **/
+    private static final int ID_LENGTH = 41;
+
+    /** Length of a record: hash code, two parents, generation, time. **/
+    private static final int RECORD = ID_LENGTH + 3 * Integer.BYTES
+            + Long.BYTES;
+
+    /** Length of the layer header: magic, version, count and base. **/
+    private static final int HEADER = 4 * Integer.BYTES;
+
+    /** Paint of commits reached from the first commit of a merge. **/
+    private static final int PARENT1 = 1;
+
+    /** Paint of commits reached from the second commit of a merge. **/
+    private static final int PARENT2 = 2;
+
+    /** Paint of commits below a common ancestor already found. **/
+    private static final int STALE = 4;
+
+    /** Paint of commits already taken as common ancestors. **/
+    private static final int RESULT = 8;
+
+    /** A layer is merged into the one below once it is at least the size
+     * of that layer divided by this. **/
+    private static final int MERGE_FACTOR = 2;
+
+    /** One layer file, mapped into memory. **/
+    private static class Layer {
+        /** The layer file. **/
+        private File _file;
+        /** The mapped contents of the file. **/
+        private MappedByteBuffer _buf;
+        /** Number of commits in the layer. **/
+        private int _count;
+        /** Position of the first commit of the layer. **/
+        private int _base;
+    }
+
+    /** Directory holding the layers. **/
+    private File _dir;
+
+    /** The layers, bottom first. **/
+    private ArrayList<Layer> _layers;
+
+    /** Number of commits in the graph. **/
+    private int _size;
+
+    /** Journal of the command writing to this graph. **/
+    private Journal _journal;
+
+    /** Opens the commit graph kept in DIR for use outside any command.
+     * @param dir : Reps the directory of the graph.**/
+    CommitGraph(File dir) {
+        this(dir, Journal.DIRECT);
+    }
+
+    /** Opens the commit graph kept in DIR, which is empty if DIR does
+     * not exist yet. New layers are synced, and the chain replaced, when
+     * JOURNAL commits.
+     * @param dir : Reps the directory of the graph.
+     * @param journal : Reps the journal of the current command.**/
+    CommitGraph(File dir, Journal journal) {
+        _dir = dir;
+        _journal = journal;
+        _layers = new ArrayList<>();
+        File chain = chainFile();
+        if (!chain.exists()) {
+            return;
+        }
+        for (String name : Utils.readContentsAsString(chain).split("\n")) {
+            if (!name.isEmpty()) {
+                Layer l = open(Utils.join(dir, name));
+                _layers.add(l);
+                _size += l._count;
+            }
+        }
+    }
+
+    /** Returns the file listing the layers, bottom first. **/
+    private File chainFile() {
+        return Utils.join(_dir, "chain");
+    }
+
+    /** Returns the layer in FILE.
+     * @param file : File.**/
+    private static Layer open(File file) {
+        Layer l = new Layer();
+        l._file = file;
+        try (FileChannel in = FileChannel.open(file.toPath())) {
+            l._buf = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (l._buf.getInt(0) != MAGIC
+                || l._buf.getInt(Integer.BYTES) != VERSION) {
+            throw new IllegalArgumentException("Bad commit graph " + file);
+        }
+        l._count = l._buf.getInt(2 * Integer.BYTES);
+        l._base = l._buf.getInt(3 * Integer.BYTES);
+        return l;
+    }
+
+    /** Returns the number of commits in the graph. **/
+    int size() {
+        return _size;
+    }
+
+    /** Returns the position of the commit ID, or NONE if it is not in
+     * the graph. Each layer is binary searched.
+     * @param id : String id.**/
+    int position(String id) {
+        if (id == null) {
+            return NONE;
+        }
+        for (int k = _layers.size() - 1; k >= 0; k -= 1) {
+            Layer l = _layers.get(k);
+            int lo = 0;
+            int hi = l._count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = idAt(l, mid).compareTo(id);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return l._base + mid;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** Returns true if the commit ID is in the graph.
+     * @param id : String id.**/
+    boolean contains(String id) {
+        return position(id) != NONE;
+    }
+
+    /** Returns the hash code of the Ith record of layer L.
+     * @param l : Layer.
+     * @param i : int.**/
+    private static String idAt(Layer l, int i) {
+        byte[] id = new byte[ID_LENGTH];
+        l._buf.get(HEADER + i * RECORD, id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+
+    /** Returns the layer holding position POS.
+     * @param pos : int.**/
+    private Layer layerOf(int pos) {
+        for (int k = _layers.size() - 1; k >= 0; k -= 1) {
+            if (pos >= _layers.get(k)._base) {
+                return _layers.get(k);
+            }
+        }
+        throw new IllegalArgumentException("No commit at " + pos);
+    }
+
+    /** Returns the offset of field FIELD of the record at POS in L.
+     * @param l : Layer.
+     * @param pos : int.
+     * @param field : Offset of the field within a record.**/
+    private static int at(Layer l, int pos, int field) {
+        return HEADER + (pos - l._base) * RECORD + field;
+    }
+
+    /** Returns the hash code of the commit at POS.
+     * @param pos : int.**/
+    String id(int pos) {
+        Layer l = layerOf(pos);
+        return idAt(l, pos - l._base);
+    }
+
+    /** Returns the position of the first parent of the commit at POS,
+     * or NONE.
+     * @param pos : int.**/
+    int parent(int pos) {
+        Layer l = layerOf(pos);
+        return l._buf.getInt(at(l, pos, ID_LENGTH));
+    }
+
+    /** Returns the position of the second (merge) parent of the commit at
+     * POS, or NONE.
+     * @param pos : int.**/
+    int parentMerge(int pos) {
+        Layer l = layerOf(pos);
+        return l._buf.getInt(at(l, pos, ID_LENGTH + Integer.BYTES));
+    }
+
+    /** Returns the generation number of the commit at POS, or 0 for NONE.
+     * @param pos : int.**/
+    int generation(int pos) {
+        if (pos == NONE) {
+            return 0;
+        }
+        Layer l = layerOf(pos);
+        return l._buf.getInt(at(l, pos, ID_LENGTH + 2 * Integer.BYTES));
+    }
+
+    /** Returns the commit time of the commit at POS, in seconds since the
+     * epoch.
+     * @param pos : int.**/
+    long time(int pos) {
+        Layer l = layerOf(pos);
+        return l._buf.getLong(at(l, pos, ID_LENGTH + 3 * Integer.BYTES));
+    }
+
+    /** Returns true if the commit at A is the commit at B or one of its
+     * ancestors. The walk back from B never goes below the generation of
+     * A, since no commit there can have A as an ancestor.
+     * @param a : int.
+     * @param b : int.**/
+    boolean isAncestor(int a, int b) {
+        int floor = generation(a);
+        BitSet seen = new BitSet(_size);
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(b);
+        while (!stack.isEmpty()) {
+            int p = stack.pop();
+            if (p == a) {
+                return true;
+            }
+            if (p == NONE || seen.get(p) || generation(p) <= floor) {
+                continue;
+            }
+            seen.set(p);
+            stack.push(parent(p));
+            stack.push(parentMerge(p));
+        }
+        return false;
+    }
+
+    /** Returns the best common ancestors of the commits at A and B: the
+     * common ancestors that are not ancestors of another common ancestor.
+     * There is usually one; criss-cross merges leave several, returned
+     * highest generation first. Commits are visited highest generation
+     * first, painted with the side(s) they were reached from; a commit
+     * painted from both sides is a candidate and everything below it is
+     * stale. The walk stops once only stale commits are left, so it
+     * never goes further back than the oldest candidate.
+     * @param a : int.
+     * @param b : int.**/
+    List<Integer> mergeBases(int a, int b) {
+        ArrayList<Integer> result = new ArrayList<>();
+        if (a == b) {
+            result.add(a);
+            return result;
+        }
+        HashMap<Integer, Integer> paint = new HashMap<>();
+        PriorityQueue<int[]> queue = new PriorityQueue<>((x, y) ->
+                x[1] != y[1] ? Integer.compare(y[1], x[1])
+                        : Integer.compare(y[0], x[0]));
+        paint.put(a, PARENT1);
+        paint.put(b, PARENT2);
+        queue.add(new int[] {a, generation(a), 1});
+        queue.add(new int[] {b, generation(b), 1});
+        int live = 2;
+        while (live > 0) {
+            int[] entry = queue.poll();
+            live -= entry[2];
+            int p = entry[0];
+            int flags = paint.get(p) & (PARENT1 | PARENT2 | STALE);
+            if ((flags & (PARENT1 | PARENT2)) == (PARENT1 | PARENT2)) {
+                if ((paint.get(p) & RESULT) == 0) {
+                    paint.put(p, paint.get(p) | RESULT);
+                    result.add(p);
+                }
+                flags |= STALE;
+            }
+            for (int q : new int[] {parent(p), parentMerge(p)}) {
+                if (q == NONE) {
+                    continue;
+                }
+                int old = paint.getOrDefault(q, 0);
+                if ((old & flags) == flags) {
+                    continue;
+                }
+                paint.put(q, old | flags);
+                int fresh = (flags & STALE) == 0 ? 1 : 0;
+                queue.add(new int[] {q, generation(q), fresh});
+                live += fresh;
+            }
+        }
+        ArrayList<Integer> best = new ArrayList<>();
+        for (int x : result) {
+            if ((paint.get(x) & STALE) != 0) {
+                continue;
+            }
+            boolean redundant = false;
+            for (int y : result) {
+                if (x != y && isAncestor(x, y)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                best.add(x);
+            }
+        }
+        best.sort((x, y) -> Integer.compare(generation(y), generation(x)));
+        return best;
+    }
+
+    /** Returns the commits at STARTS and their ancestors, newest commit
+     * time first, each once. Commits with the same time come higher
+     * generation first, so a commit always comes before its parents.
+     * The walk is lazy: a queue holds only the commits whose children
+     * were returned, and a commit is reached only when asked for, so
+     * taking the first few costs next to nothing however long the
+     * history. If FIRSTPARENT, merges are followed to their first
+     * parent only.
+     * @param starts : Positions of the commits to start from.
+     * @param firstParent : boolean.**/
+    Iterator<Integer> byTime(List<Integer> starts, boolean firstParent) {
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+                Comparator.comparingLong((Integer p) -> time(p)).reversed()
+                        .thenComparing(p -> generation(p),
+                                Comparator.reverseOrder())
+                        .thenComparing(Comparator.reverseOrder()));
+        BitSet seen = new BitSet(_size);
+        for (int p : starts) {
+            if (p != NONE && !seen.get(p)) {
+                seen.set(p);
+                queue.add(p);
+            }
+        }
+        return new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public Integer next() {
+                if (queue.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                int p = queue.poll();
+                int[] parents = firstParent ? new int[] {parent(p)}
+                        : new int[] {parent(p), parentMerge(p)};
+                for (int q : parents) {
+                    if (q != NONE && !seen.get(q)) {
+                        seen.set(q);
+                        queue.add(q);
+                    }
+                }
+                return p;
+            }
+        };
+    }
+
+    /** Adds COMMITS, each listed after its parents, to the graph. Their
+     * parents must be in the graph or in COMMITS. A commit already in the
+     * graph, or listed twice, is rejected before anything is written:
+     * a layer holding an id twice could not be searched, and could only
+     * be repaired by deleting it.
+     * @param commits : Commits not yet in the graph.**/
+    void add(List<Commit> commits) {
+        int n = commits.size();
+        if (n == 0) {
+            return;
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i ->
+                commits.get(i).getHashCodeCommit()));
+        HashMap<String, Integer> added = new HashMap<>();
+        int[] rank = new int[n];
+        for (int r = 0; r < n; r += 1) {
+            rank[order[r]] = r;
+            String id = commits.get(order[r]).getHashCodeCommit();
+            if (added.put(id, _size + r) != null || contains(id)) {
+                throw new IllegalArgumentException("Commit " + id
+                        + " is already in the commit graph.");
+            }
+        }
+        String[] ids = new String[n];
+        int[] parents = new int[n];
+        int[] merges = new int[n];
+        int[] gens = new int[n];
+        long[] times = new long[n];
+        for (int i = 0; i < n; i += 1) {
+            Commit c = commits.get(i);
+            int r = rank[i];
+            ids[r] = c.getHashCodeCommit();
+            parents[r] = resolve(c.getParent(), added);
+            merges[r] = resolve(c.getParentMerge(), added);
+            gens[r] = 1 + Math.max(generation(parents[r], gens),
+                    generation(merges[r], gens));
+            times[r] = c.getTime();
+        }
+        _layers.add(write(ids, parents, merges, gens, times, _size));
+        _size += n;
+        ArrayList<File> old = new ArrayList<>();
+        while (_layers.size() > 1 && _layers.get(_layers.size() - 1)._count
+                * MERGE_FACTOR >= _layers.get(_layers.size() - 2)._count) {
+            old.add(_layers.get(_layers.size() - 1)._file);
+            old.add(_layers.get(_layers.size() - 2)._file);
+            mergeTop();
+        }
+        StringBuilder chain = new StringBuilder();
+        for (Layer l : _layers) {
+            chain.append(l._file.getName()).append('\n');
+        }
+        _journal.replace(chainFile(),
+                chain.toString().getBytes(StandardCharsets.US_ASCII));
+        for (File f : old) {
+            _journal.delete(f);
+        }
+    }
+
+    /** Returns the position of the parent ID, looked up first in ADDED.
+     * @param id : String id, or null.
+     * @param added : Positions of the commits being added.**/
+    private int resolve(String id, HashMap<String, Integer> added) {
+        if (id == null) {
+            return NONE;
+        }
+        Integer pos = added.get(id);
+        if (pos != null) {
+            return pos;
+        }
+        pos = position(id);
+        if (pos == NONE) {
+            throw new IllegalArgumentException("Parent " + id
+                    + " is not in the commit graph.");
+        }
+        return pos;
+    }
+
+    /** Returns the generation of POS, taken from GENS, the generations of
+     * the layer being written, if POS is not in the graph yet.
+     * @param pos : int.
+     * @param gens : Generations of the new layer.**/
+    private int generation(int pos, int[] gens) {
+        return pos >= _size ? gens[pos - _size] : generation(pos);
+    }
+
+    /** Merges the top two layers into one. Records move to their sorted
+     * place in the merged layer, so parent positions within the two
+     * layers are renumbered; positions below them stay as they are. **/
+    private void mergeTop() {
+        Layer upper = _layers.remove(_layers.size() - 1);
+        Layer lower = _layers.remove(_layers.size() - 1);
+        int base = lower._base;
+        int n = lower._count + upper._count;
+        String[] oldIds = new String[n];
+        for (int i = 0; i < n; i += 1) {
+            oldIds[i] = idIn(base + i, lower, upper);
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> oldIds[i]));
+        int[] remap = new int[n];
+        for (int r = 0; r < n; r += 1) {
+            remap[order[r]] = r;
+        }
+        String[] ids = new String[n];
+        int[] parents = new int[n];
+        int[] merges = new int[n];
+        int[] gens = new int[n];
+        long[] times = new long[n];
+        for (int r = 0; r < n; r += 1) {
+            int pos = base + order[r];
+            Layer l = pos >= upper._base ? upper : lower;
+            ids[r] = oldIds[order[r]];
+            parents[r] = renumber(l._buf.getInt(at(l, pos, ID_LENGTH)),
+                    base, remap);
+            merges[r] = renumber(l._buf.getInt(at(l, pos,
+                    ID_LENGTH + Integer.BYTES)), base, remap);
+            gens[r] = l._buf.getInt(at(l, pos,
+                    ID_LENGTH + 2 * Integer.BYTES));
+            times[r] = l._buf.getLong(at(l, pos,
+                    ID_LENGTH + 3 * Integer.BYTES));
+        }
+        _layers.add(write(ids, parents, merges, gens, times, base));
+    }
+
+    /** Returns the hash code at POS, which is in LOWER or UPPER.
+     * @param pos : int.
+     * @param lower : Layer.
+     * @param upper : Layer.**/
+    private static String idIn(int pos, Layer lower, Layer upper) {
+        Layer l = pos >= upper._base ? upper : lower;
+        return idAt(l, pos - l._base);
+    }
+
+    /** Returns the new position of POS once the layers from BASE up are
+     * renumbered by REMAP.
+     * @param pos : int.
+     * @param base : int.
+     * @param remap : Maps old to new indexes above BASE.**/
+    private static int renumber(int pos, int base, int[] remap) {
+        return pos < base ? pos : base + remap[pos - base];
+    }
+
+    /** Writes a layer whose first commit is at position BASE and returns
+     * it. The records are given sorted by hash code.
+     * @param ids : Hash codes.
+     * @param parents : Positions of the first parents.
+     * @param merges : Positions of the second parents.
+     * @param gens : Generation numbers.
+     * @param times : Commit times.
+     * @param base : int.**/
+    private Layer write(String[] ids, int[] parents, int[] merges,
+                        int[] gens, long[] times, int base) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + ids.length * RECORD);
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putInt(ids.length);
+        buf.putInt(base);
+        for (int i = 0; i < ids.length; i += 1) {
+            buf.put(ids[i].getBytes(StandardCharsets.US_ASCII));
+            buf.putInt(parents[i]);
+            buf.putInt(merges[i]);
+            buf.putInt(gens[i]);
+            buf.putLong(times[i]);
+        }
+        _dir.mkdirs();
+        String name = "graph-" + Utils.sha1(buf.array()) + ".graph";
+        File tmp = ObjectStore.tempFile(_dir, name);
+        Utils.writeContents(tmp, buf.array());
+        File file = Utils.join(_dir, name);
+        ObjectStore.rename(tmp, file);
+        _journal.created(file);
+        return open(file);
+    }
+
+}
@@ -0,0 +1,103 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertThrows;
+import static gitlet.UnitTest.assertTrue;
+
+/** Tests of CommitGraph.
+ *  @author Neel Dhoundiyal
+ */
+public class CommitGraphTest {
+
+    /** Returns a new commit on PARENT, merging MERGE if not null, with
+     *  MESSAGE.
+     *  @param parent : Commit.
+     *  @param merge : Commit, or null.
+     *  @param message : String.*/
+    static Commit child(Commit parent, Commit merge, String message) {
+        if (merge == null) {
+            return new Commit(message, parent.getHashCodeCommit(),
+                    "master", Tree.EMPTY);
+        }
+        return new Commit(message, parent.getHashCodeCommit(),
+                merge.getHashCodeCommit(), "master", Tree.EMPTY);
+    }
+
+    /** Returns the position of C in GRAPH.
+     *  @param graph : CommitGraph.
+     *  @param c : Commit.*/
+    static int pos(CommitGraph graph, Commit c) {
+        return graph.position(c.getHashCodeCommit());
+    }
+
+    /** Generations count the longest path from the root, and ancestry
+     *  follows both parents of a merge. **/
+    public static void testGenerationAndAncestry() {
+        CommitGraph g = new CommitGraph(new File(UnitTest.tempDir(), "g"));
+        Commit root = new Commit();
+        Commit a = child(root, null, "a");
+        Commit b = child(root, null, "b");
+        Commit b2 = child(b, null, "b2");
+        Commit m = child(a, b2, "m");
+        g.add(Arrays.asList(root, a, b, b2, m));
+        assertEquals("size", 5, g.size());
+        assertEquals("root", 1, g.generation(pos(g, root)));
+        assertEquals("merge", 4, g.generation(pos(g, m)));
+        assertEquals("parent", pos(g, a), g.parent(pos(g, m)));
+        assertEquals("merge parent", pos(g, b2), g.parentMerge(pos(g, m)));
+        assertEquals("id", m.getHashCodeCommit(), g.id(pos(g, m)));
+        assertTrue("b under m", g.isAncestor(pos(g, b), pos(g, m)));
+        assertTrue("a not under b2", !g.isAncestor(pos(g, a), pos(g, b2)));
+        assertEquals("merge base", Collections.singletonList(pos(g, root)),
+                g.mergeBases(pos(g, a), pos(g, b2)));
+        assertEquals("base of ancestor", Collections.singletonList(
+                pos(g, b)), g.mergeBases(pos(g, b), pos(g, m)));
+    }
+
+    /** Commits added one at a time, whose layers are merged as they
+     *  grow, keep their parents, and survive reopening the graph. **/
+    public static void testLayersMerged() {
+        File dir = new File(UnitTest.tempDir(), "g");
+        CommitGraph g = new CommitGraph(dir);
+        Commit[] chain = new Commit[40];
+        chain[0] = new Commit();
+        g.add(Collections.singletonList(chain[0]));
+        for (int i = 1; i < chain.length; i += 1) {
+            chain[i] = child(chain[i - 1], null, "c" + i);
+            g.add(Collections.singletonList(chain[i]));
+        }
+        g = new CommitGraph(dir);
+        assertEquals("size", chain.length, g.size());
+        for (int i = 1; i < chain.length; i += 1) {
+            assertEquals("parent " + i, pos(g, chain[i - 1]),
+                    g.parent(pos(g, chain[i])));
+            assertEquals("generation " + i, i + 1,
+                    g.generation(pos(g, chain[i])));
+        }
+        assertTrue("fewer layers than commits",
+                dir.list().length < chain.length);
+    }
+
+    /** A commit already in the graph, or listed twice, is rejected and
+     *  the graph is left as it was. **/
+    public static void testDuplicateRejected() {
+        CommitGraph g = new CommitGraph(new File(UnitTest.tempDir(), "g"));
+        Commit root = new Commit();
+        Commit a = child(root, null, "a");
+        g.add(Arrays.asList(root, a));
+        assertThrows("already present", IllegalArgumentException.class,
+                () -> g.add(Collections.singletonList(a)));
+        Commit b = child(a, null, "b");
+        List<Commit> twice = Arrays.asList(b, b);
+        assertThrows("listed twice", IllegalArgumentException.class,
+                () -> g.add(twice));
+        assertEquals("unchanged", 2, g.size());
+        assertTrue("b not added", !g.contains(b.getHashCodeCommit()));
+    }
+
+}
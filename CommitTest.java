@@ -0,0 +1,112 @@
+package gitlet;
+
+import java.io.File;
+import java.util.TreeMap;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+
+/** Tests of Commit: hash codes and the encoded form.
+ *  @author Neel Dhoundiyal
+ */
+public class CommitTest {
+
+    /** Commits made in the same second with the same message and branch
+     *  get different hash codes when their trees or parents differ. **/
+    public static void testHashCodeCoversTreeAndParent() {
+        Commit root = new Commit();
+        Commit a = new Commit("same", root.getHashCodeCommit(), "master",
+                "t" + Utils.sha1("a"));
+        Commit b = new Commit("same", root.getHashCodeCommit(), "master",
+                "t" + Utils.sha1("b"));
+        Commit c = new Commit("same", a.getHashCodeCommit(), "master",
+                "t" + Utils.sha1("a"));
+        assertTrue("trees differ", !a.getHashCodeCommit()
+                .equals(b.getHashCodeCommit()));
+        assertTrue("parents differ", !a.getHashCodeCommit()
+                .equals(c.getHashCodeCommit()));
+        assertEquals("initial commits agree",
+                new Commit().getHashCodeCommit(), root.getHashCodeCommit());
+    }
+
+    /** A new commit's time is the instant it was made, whatever the
+     *  local time zone, and the initial commit's is the epoch. **/
+    public static void testTimeIsNow() {
+        long before = System.currentTimeMillis() / 1000;
+        Commit c = new Commit("now", new Commit().getHashCodeCommit(),
+                "master", Tree.EMPTY);
+        long after = System.currentTimeMillis() / 1000;
+        assertTrue("made now: " + c.getTimeStamp(),
+                c.getTime() >= before && c.getTime() <= after);
+        assertEquals("initial", 0L, new Commit().getTime());
+    }
+
+    /** A commit decodes to the fields it was encoded with. **/
+    public static void testEncodeRoundTrip() {
+        Commit root = new Commit();
+        Commit m = new Commit("merge", root.getHashCodeCommit(),
+                "c" + Utils.sha1("other"), "dev", Tree.EMPTY);
+        Commit d = Commit.decode(m.encode());
+        assertEquals("id", m.getHashCodeCommit(), d.getHashCodeCommit());
+        assertEquals("message", "merge", d.getLogMessage());
+        assertEquals("time stamp", m.getTimeStamp(), d.getTimeStamp());
+        assertEquals("branch", "dev", d.getBranch());
+        assertEquals("parent", root.getHashCodeCommit(), d.getParent());
+        assertEquals("merge parent", m.getParentMerge(),
+                d.getParentMerge());
+        assertTrue("merge flag", d.getMerge());
+        assertEquals("tree", Tree.EMPTY, d.getTree());
+    }
+
+    /** A version 1 commit, which lists its blobs rather than naming a
+     *  tree, is still read: its tree is built from the blobs. **/
+    public static void testVersionOneCommitRead() {
+        ObjectStore store = ObjectStoreTest.store();
+        String a = ObjectStoreTest.blobId("one");
+        String b = ObjectStoreTest.blobId("two");
+        String id = "c" + Utils.sha1("old commit");
+        Encoder out = new Encoder(Commit.TAG, 1);
+        out.writeHash(id);
+        out.writeString("old");
+        out.writeString("Thu Jan 01 00:00:00 1970 -0800");
+        out.writeString("master");
+        out.writeOptionalHash(null);
+        out.writeOptionalHash(null);
+        out.writeBoolean(false);
+        out.writeVarint(2);
+        out.writeString("a.txt");
+        out.writeHash(a);
+        out.writeString("dir/b.txt");
+        out.writeHash(b);
+        store.put(id, out.toByteArray());
+        Commit c = new CommitCache(store, 4).get(id);
+        assertEquals("id", id, c.getHashCodeCommit());
+        assertEquals("message", "old", c.getLogMessage());
+        TreeMap<String, String> files = new TreeMap<>();
+        Tree.flatten(store, c.getTree(), "", files);
+        TreeMap<String, String> expected = new TreeMap<>();
+        expected.put("a.txt", a);
+        expected.put("dir/b.txt", b);
+        assertEquals("files", expected, files);
+    }
+
+    /** Two commits with the same message, back to back, both survive
+     *  with their own trees. **/
+    public static void testSameMessageCommitsKept() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        UnitTest.write(dir, "a.txt", "one");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "same");
+        UnitTest.write(dir, "b.txt", "two");
+        gitlet(dir, "add", "b.txt");
+        gitlet(dir, "commit", "same");
+        String log = gitlet(dir, "log");
+        assertEquals("commits in log", 3, log.split("===").length - 1);
+        new File(dir, "a.txt").delete();
+        gitlet(dir, "checkout", "--", "a.txt");
+        assertEquals("a.txt restored", "one", UnitTest.read(dir, "a.txt"));
+    }
+
+}
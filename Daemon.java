@@ -0,0 +1,472 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/** A long-running server for one repo, started with 'serve' in the repo's
+ * directory. It keeps the repo read, with its commit cache, commit graph
+ * and stat index warm, and runs the commands clients send it over the
+ * Unix-domain socket .gitlet/serve.sock, sending back what they print.
+ * Main forwards every command to it while it runs.
+ * A request is the command's arguments, each ended by a NUL byte, and
+ * ends when the client shuts down its side of the connection; the reply
+ * is the command's output, and ends when the daemon closes it.
+ * Requests are run by a pool of threads. Read-only commands share the
+ * repo and run alongside each other; any other command waits for them
+ * and runs alone, holding the repo's lock so that no other process
+ * writes the repo meanwhile.
+ * @author Neel Dhoundiyal **/
+class Daemon {
+
+    /** Name of the socket in .gitlet the daemon listens on. **/
+    static final String SOCKET = "serve.sock";
+
+    /** Files in .gitlet that other processes change when they change the
+     * repo. If the stat data of any of them is not what the daemon last
+     * saw, the daemon reads the repo again. The index is left out: it is
+     * only a cache whose entries are checked against the files, and even
+     * read-only commands write it. **/
+    private static final String[] WATCHED = {"info", "stage",
+        "graph/chain", "pack"};
+
+    /** What a client is told when its command fails unexpectedly. **/
+    static final String INTERNAL_ERROR =
+            "Internal error; see the output of gitlet serve.";
+
+    /** Number of threads running requests. **/
+    private static final int THREADS =
+            Runtime.getRuntime().availableProcessors();
+
+    /** System.out while the daemon runs: what each thread prints goes to
+     * the client whose command it is running, or else to the daemon's own
+     * standard output. PrintStream encodes under its own lock and writes
+     * through before returning, so the bytes of a print reach this stream
+     * on the thread that printed them. Its error flag is shared by every
+     * thread and never cleared, so each thread's own failures are kept
+     * here instead. **/
+    private static class Router extends OutputStream {
+        /** Output of the command the current thread is running. **/
+        private final ThreadLocal<OutputStream> _target = new ThreadLocal<>();
+        /** True once writing the current thread's output has failed. **/
+        private final ThreadLocal<Boolean> _failed =
+                ThreadLocal.withInitial(() -> false);
+        /** Where output goes when no command is running. **/
+        private final OutputStream _console;
+
+        /** Router sending output outside commands to CONSOLE.
+         * @param console : OutputStream.**/
+        Router(OutputStream console) {
+            _console = console;
+        }
+
+        /** Sends what the current thread prints to OUT, or back to the
+         * console if OUT is null.
+         * @param out : OutputStream.**/
+        void set(OutputStream out) {
+            _target.set(out);
+            _failed.set(false);
+        }
+
+        /** Returns true if writing has failed since the current thread's
+         * output was last set, as when its client went away. **/
+        boolean failed() {
+            return _failed.get();
+        }
+
+        /** Returns where the current thread's output goes. **/
+        private OutputStream target() {
+            OutputStream out = _target.get();
+            return out == null ? _console : out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                target().write(b);
+            } catch (IOException excp) {
+                _failed.set(true);
+                throw excp;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                target().write(b, off, len);
+            } catch (IOException excp) {
+                _failed.set(true);
+                throw excp;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                target().flush();
+            } catch (IOException excp) {
+                _failed.set(true);
+                throw excp;
+            }
+        }
+    }
+
+    /** The .gitlet directory of the repo served. **/
+    private File _dir;
+
+    /** Held shared by read-only commands and exclusively by the others
+     * and while the repo is read again. **/
+    private final ReentrantReadWriteLock _lock = new ReentrantReadWriteLock();
+
+    /** The repo as the last command left it. **/
+    private Gitlet _repo;
+
+    /** True if _repo must be read again before the next command. **/
+    private volatile boolean _stale;
+
+    /** Stat data of WATCHED when _repo was last read or saved. **/
+    private String _stamp;
+
+    /** The socket requests arrive on. **/
+    private ServerSocketChannel _server;
+
+    /** True once the daemon has been asked to stop. **/
+    private volatile boolean _stopped;
+
+    /** Routes System.out to the clients. **/
+    private Router _router;
+
+    /** Daemon for the repo whose .gitlet directory is DIR.
+     * @param dir : Reps the .gitlet directory.**/
+    Daemon(File dir) {
+        _dir = dir;
+        _stale = true;
+    }
+
+    /** Runs 'serve' with OPERANDS: with none, serves the repo in the
+     * current directory until stopped; with --stop, stops the daemon
+     * serving it.
+     * @param operands : Nothing or --stop.**/
+    static void serve(List<String> operands) throws IOException {
+        File dir = Utils.join(System.getProperty("user.dir"), ".gitlet");
+        if (!dir.exists()) {
+            System.out.println("Not in an initialized Gitlet directory.");
+        } else if (operands.size() == 1 && operands.get(0).equals("--stop")) {
+            if (!forward(new String[] {"serve", "--stop"})) {
+                System.out.println("No Gitlet daemon is running.");
+            }
+        } else if (operands.isEmpty()) {
+            new Daemon(dir).run();
+        } else {
+            System.out.println("Incorrect operands.");
+        }
+    }
+
+    /** Sends ARGS to the daemon serving the repo in the current directory
+     * and copies its reply to System.out. Returns false, having sent
+     * nothing, if no daemon is serving it.
+     * @param args : Command and operands.**/
+    static boolean forward(String[] args) throws IOException {
+        File socket = Utils.join(System.getProperty("user.dir"), ".gitlet",
+                SOCKET);
+        if (!socket.exists()) {
+            return false;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(
+                    UnixDomainSocketAddress.of(socket.toPath()));
+        } catch (IOException excp) {
+            return false;
+        }
+        try (channel) {
+            Channels.newOutputStream(channel).write(request(args));
+            channel.shutdownOutput();
+            Channels.newInputStream(channel).transferTo(System.out);
+        }
+        System.out.flush();
+        return true;
+    }
+
+    /** Returns the request for ARGS.
+     * @param args : Command and operands.**/
+    static byte[] request(String[] args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String arg : args) {
+            out.writeBytes(arg.getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the arguments in the request DATA.
+     * @param data : byte[].**/
+    static ArrayList<String> arguments(byte[] data) {
+        ArrayList<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < data.length; i += 1) {
+            if (data[i] == 0) {
+                result.add(new String(data, start, i - start,
+                        StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+    /** Listens on .gitlet/serve.sock and hands each request to the pool
+     * until asked to stop, then waits for the requests already taken. A
+     * socket left by a daemon that died is replaced. **/
+    void run() throws IOException {
+        File socket = new File(_dir, SOCKET);
+        if (socket.exists()) {
+            try {
+                SocketChannel.open(UnixDomainSocketAddress.of(
+                        socket.toPath())).close();
+                System.out.println("A Gitlet daemon is already running.");
+                return;
+            } catch (IOException excp) {
+                socket.delete();
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(socket::delete));
+        PrintStream console = System.out;
+        _router = new Router(console);
+        System.setOut(new PrintStream(_router, false,
+                StandardCharsets.UTF_8) {
+            @Override
+            public boolean checkError() {
+                super.checkError();
+                return _router.failed();
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try (ServerSocketChannel server = ServerSocketChannel.open(
+                StandardProtocolFamily.UNIX)) {
+            _server = server;
+            server.bind(UnixDomainSocketAddress.of(socket.toPath()));
+            while (!_stopped) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException excp) {
+                    if (!_stopped) {
+                        System.err.println(excp);
+                    }
+                    continue;
+                }
+                pool.execute(() -> handle(client));
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            System.setOut(console);
+            socket.delete();
+        }
+    }
+
+    /** Reads one request from CLIENT and runs it with everything this
+     * thread prints sent back to CLIENT, then closes CLIENT.
+     * @param client : SocketChannel.**/
+    private void handle(SocketChannel client) {
+        try (client) {
+            ArrayList<String> args = arguments(
+                    Channels.newInputStream(client).readAllBytes());
+            OutputStream out = new BufferedOutputStream(
+                    Channels.newOutputStream(client));
+            _router.set(out);
+            try {
+                execute(args);
+            } finally {
+                System.out.flush();
+                _router.set(null);
+            }
+        } catch (IOException excp) {
+            System.err.println(excp);
+        }
+    }
+
+    /** Runs the command ARGS against the repo, reading it again first if
+     * another process changed it. A command that fails leaves behind
+     * nothing it changed in memory: the repo is read again before the
+     * next one, just as the next process would read it. The client is
+     * sent the message of a GitletException; any other failure is logged
+     * in one line on the daemon's standard error, and the client is only
+     * told to look there.
+     * @param args : Command and operands.**/
+    private void execute(ArrayList<String> args) {
+        if (args.isEmpty()) {
+            System.out.println("Please enter a command.");
+            return;
+        }
+        if (args.get(0).equals("serve")) {
+            if (args.size() == 2 && args.get(1).equals("--stop")) {
+                stop();
+            } else {
+                System.out.println("A Gitlet daemon is already running.");
+            }
+            return;
+        }
+        boolean readOnly = Gitlet.READ_ONLY.contains(args.get(0));
+        Gitlet repo;
+        try {
+            repo = acquire(readOnly);
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+            return;
+        } catch (RuntimeException excp) {
+            fail(args, excp);
+            return;
+        }
+        RepoLock lock = null;
+        try {
+            if (!readOnly) {
+                lock = new RepoLock(_dir, false);
+            }
+            if (!readOnly && !current()) {
+                repo = read();
+            }
+            repo.run(args);
+            if (!readOnly) {
+                repo.save();
+                _stamp = stamp();
+            }
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+            if (!readOnly && repo != null) {
+                repo.discard();
+                _stale = true;
+            }
+        } catch (IOException | RuntimeException excp) {
+            fail(args, excp);
+            if (!readOnly && repo != null) {
+                repo.discard();
+            }
+            _stale = true;
+        } finally {
+            if (lock != null) {
+                lock.close();
+            }
+            if (readOnly) {
+                _lock.readLock().unlock();
+            } else {
+                _lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Logs EXCP, which the command ARGS failed with unexpectedly, on the
+     * daemon's standard error and tells the client to look there.
+     * @param args : Command and operands.
+     * @param excp : Exception.**/
+    private void fail(ArrayList<String> args, Exception excp) {
+        System.err.println("gitlet serve: " + args.get(0) + ": " + excp);
+        System.out.println(INTERNAL_ERROR);
+    }
+
+    /** Takes _lock, shared if READ_ONLY and exclusive otherwise, and
+     * returns the repo. For a read-only command the repo is first read
+     * again if it is not current, with _lock briefly held exclusively;
+     * other commands do that themselves once they hold the repo's lock.
+     * The caller releases _lock.
+     * @param readOnly : True for a read-only command.**/
+    private Gitlet acquire(boolean readOnly) {
+        if (!readOnly) {
+            _lock.writeLock().lock();
+            return _repo;
+        }
+        _lock.readLock().lock();
+        if (current()) {
+            return _repo;
+        }
+        _lock.readLock().unlock();
+        _lock.writeLock().lock();
+        try {
+            if (!current()) {
+                RepoLock lock = new RepoLock(_dir, false);
+                try {
+                    read();
+                } finally {
+                    lock.close();
+                }
+            }
+            _lock.readLock().lock();
+        } finally {
+            _lock.writeLock().unlock();
+        }
+        return _repo;
+    }
+
+    /** Returns true if _repo is as the repo is on disk: no command failed
+     * since it was read, and no other process has written the repo. **/
+    private boolean current() {
+        return !_stale && stamp().equals(_stamp);
+    }
+
+    /** Reads the repo again, keeping the commits already decoded, since
+     * commits never change, and returns it. Called holding _lock
+     * exclusively. **/
+    private Gitlet read() {
+        Gitlet fresh = new Gitlet();
+        if (_repo != null) {
+            fresh.keepCaches(_repo);
+        }
+        fresh.prepareReads();
+        _repo = fresh;
+        _stamp = stamp();
+        _stale = false;
+        return fresh;
+    }
+
+    /** Stops taking requests. Those already taken still run. **/
+    private void stop() {
+        _stopped = true;
+        try {
+            _server.close();
+        } catch (IOException excp) {
+            System.err.println(excp);
+        }
+    }
+
+    /** Returns the stat data of the WATCHED files: size, modification
+     * time in nanoseconds and file key, or "-" for a missing file. **/
+    private String stamp() {
+        StringBuilder result = new StringBuilder();
+        for (String name : WATCHED) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(
+                        new File(_dir, name).toPath(),
+                        BasicFileAttributes.class);
+                result.append(attrs.size()).append(' ')
+                        .append(attrs.lastModifiedTime()
+                                .to(TimeUnit.NANOSECONDS)).append(' ')
+                        .append(attrs.fileKey()).append(';');
+            } catch (IOException excp) {
+                result.append("-;");
+            }
+        }
+        return result.toString();
+    }
+
+}
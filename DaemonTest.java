@@ -0,0 +1,114 @@
+package gitlet;
+
+import java.io.File;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.write;
+
+/** Tests of Daemon, run against a daemon serving a repo in a temporary
+ *  directory.
+ *  @author Neel Dhoundiyal
+ */
+public class DaemonTest {
+
+    /** Starts a daemon serving the repo in DIR and returns it once it
+     *  takes requests.
+     *  @param dir : Working directory of the repo.*/
+    static Process serve(File dir) throws InterruptedException {
+        Process p = UnitTest.start(dir, "serve");
+        File socket = new File(dir, ".gitlet/" + Daemon.SOCKET);
+        for (int i = 0; i < 200 && !socket.exists(); i += 1) {
+            Thread.sleep(50);
+        }
+        assertTrue("daemon started", socket.exists());
+        return p;
+    }
+
+    /** Stops the daemon P serving the repo in DIR.
+     *  @param dir : Working directory of the repo.
+     *  @param p : Process of the daemon.*/
+    static void stop(File dir, Process p) throws InterruptedException {
+        gitlet(dir, "serve", "--stop");
+        assertEquals("daemon exit", 0, p.waitFor());
+    }
+
+    /** Commands sent to the daemon print what they print when run
+     *  directly, errors included. **/
+    public static void testCommandsForwarded() throws InterruptedException {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        String status = gitlet(dir, "status");
+        Process p = serve(dir);
+        try {
+            assertEquals("status", status, gitlet(dir, "status"));
+            write(dir, "a.txt", "a");
+            assertEquals("add", "", gitlet(dir, "add", "a.txt"));
+            assertEquals("commit", "", gitlet(dir, "commit", "add a"));
+            assertTrue("log", gitlet(dir, "log").contains("add a"));
+            assertEquals("error", "No changes added to the commit.\n",
+                    gitlet(dir, "commit", "nothing"));
+            assertEquals("running", "A Gitlet daemon is already running.\n",
+                    gitlet(dir, "serve"));
+        } finally {
+            stop(dir, p);
+        }
+        assertTrue("socket removed",
+                !new File(dir, ".gitlet/" + Daemon.SOCKET).exists());
+        assertTrue("log kept", gitlet(dir, "log").contains("add a"));
+    }
+
+    /** A client that goes away before the whole log is sent leaves the
+     *  log whole for the clients after it. **/
+    public static void testClientGoneEarly() throws Exception {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        String message = "m".repeat(100000);
+        for (int i = 0; i < 10; i += 1) {
+            write(dir, "a.txt", "v" + i);
+            gitlet(dir, "add", "a.txt");
+            gitlet(dir, "commit", message + i);
+        }
+        String log = gitlet(dir, "log");
+        Process p = serve(dir);
+        try {
+            try (SocketChannel client = SocketChannel.open(
+                    UnixDomainSocketAddress.of(new File(dir, ".gitlet/"
+                            + Daemon.SOCKET).toPath()))) {
+                Channels.newOutputStream(client).write(
+                        Daemon.request(new String[] {"log"}));
+                client.shutdownOutput();
+                client.read(ByteBuffer.allocate(16));
+            }
+            Thread.sleep(500);
+            assertEquals("whole log", log, gitlet(dir, "log"));
+        } finally {
+            stop(dir, p);
+        }
+    }
+
+    /** A command that fails unexpectedly tells the client no more than
+     *  to look at the daemon's output, and the daemon keeps serving. **/
+    public static void testUnexpectedFailure() throws InterruptedException {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        String status = gitlet(dir, "status");
+        Process p = serve(dir);
+        try {
+            File stage = new File(dir, ".gitlet/stage");
+            Utils.writeContents(stage, "not a stage");
+            assertEquals("internal error", Daemon.INTERNAL_ERROR + "\n",
+                    gitlet(dir, "status"));
+            stage.delete();
+            assertEquals("recovered", status, gitlet(dir, "status"));
+        } finally {
+            stop(dir, p);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+
+/** Reads records written by Encoder.
+ * @author Neel Dhoundiyal **/
+class Decoder {
+
+    /** Bits of a value carried by each byte of a varint. **/
+    private static final int VARINT_BITS = 7;
+
+    /** Low bits of a varint byte holding the value. **/
+    private static final int VARINT_MASK = 0x7f;
+
+    /** High bit of a varint byte, set when more bytes follow. **/
+    private static final int VARINT_MORE = 0x80;
+
+    /** Digits of a hash code. **/
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The record being read. **/
+    private byte[] _data;
+
+    /** Position of the next byte to read. **/
+    private int _pos;
+
+    /** Format version of the record. **/
+    private int _version;
+
+    /** Decoder of the record DATA, which must be of kind TAG and written
+     * at a version no newer than MAXVERSION.
+     * @param data : Reps the encoded record.
+     * @param tag : Reps the kind of record expected.
+     * @param maxVersion : Reps the newest version this code can read.**/
+    Decoder(byte[] data, int tag, int maxVersion) {
+        _data = data;
+        _pos = 0;
+        if (data.length == 0 || readByte() != tag) {
+            throw new IllegalArgumentException("Not a record of kind "
+                    + tag + ".");
+        }
+        _version = (int) readVarint();
+        if (_version > maxVersion) {
+            throw new IllegalArgumentException("Record version "
+                    + _version + " is newer than " + maxVersion + ".");
+        }
+    }
+
+    /** Returns the format version of the record. **/
+    int version() {
+        return _version;
+    }
+
+    /** Returns the next byte. **/
+    private int readByte() {
+        if (_pos >= _data.length) {
+            throw new IllegalArgumentException("Truncated record.");
+        }
+        return _data[_pos++] & 0xff;
+    }
+
+    /** Returns the next unsigned varint. **/
+    long readVarint() {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = readByte();
+            v |= (long) (b & VARINT_MASK) << shift;
+            shift += VARINT_BITS;
+        } while ((b & VARINT_MORE) != 0);
+        return v;
+    }
+
+    /** Returns the next length-prefixed string. **/
+    String readString() {
+        int n = (int) readVarint();
+        if (_pos + n > _data.length) {
+            throw new IllegalArgumentException("Truncated record.");
+        }
+        String s = new String(_data, _pos, n, StandardCharsets.UTF_8);
+        _pos += n;
+        return s;
+    }
+
+    /** Returns the next boolean. **/
+    boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    /** Returns the next raw hash as a hash code starting with KIND.
+     * @param kind : String.**/
+    String readHash(String kind) {
+        StringBuilder id = new StringBuilder(kind);
+        for (int i = 0; i < Encoder.HASH_BYTES; i += 1) {
+            int b = readByte();
+            id.append(HEX[b >>> 4]).append(HEX[b & 0xf]);
+        }
+        return id.toString();
+    }
+
+    /** Returns the next optional hash as a hash code starting with KIND,
+     * or null if it is absent.
+     * @param kind : String.**/
+    String readOptionalHash(String kind) {
+        return readBoolean() ? readHash(kind) : null;
+    }
+
+}
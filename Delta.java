@@ -0,0 +1,134 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Binary deltas between two versions of a file. A delta is a list of
+ * instructions that rebuild the target from the base: copy a range of
+ * the base, or insert literal bytes.
+ * @author Neel Dhoundiyal **/
+class Delta {
+
+    /** Size of the blocks of the base that the target is matched on. **/
+    private static final int BLOCK = 16;
+
+    /** Instruction inserting literal bytes. **/
+    private static final int INSERT = 0;
+
+    /** Instruction copying a range of the base. **/
+    private static final int COPY = 1;
+
+    /** Returns a delta that turns BASE into TARGET.
+     * @param base : Bytes of the base version.
+     * @param target : Bytes of the target version.**/
+    static byte[] create(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(base.length);
+            out.writeInt(target.length);
+            int pending = 0;
+            int i = 0;
+            while (i + BLOCK <= target.length) {
+                Integer at = blocks.get(hash(target, i));
+                if (at == null || !Arrays.equals(base, at, at + BLOCK,
+                        target, i, i + BLOCK)) {
+                    i += 1;
+                    continue;
+                }
+                int s = at;
+                int t = i;
+                while (s > 0 && t > pending && base[s - 1] == target[t - 1]) {
+                    s -= 1;
+                    t -= 1;
+                }
+                int e = at + BLOCK;
+                int te = i + BLOCK;
+                while (e < base.length && te < target.length
+                        && base[e] == target[te]) {
+                    e += 1;
+                    te += 1;
+                }
+                insert(out, target, pending, t);
+                out.writeByte(COPY);
+                out.writeInt(s);
+                out.writeInt(e - s);
+                i = te;
+                pending = te;
+            }
+            insert(out, target, pending, target.length);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the target rebuilt by applying DELTA to BASE.
+     * @param base : Bytes of the base version.
+     * @param delta : Delta made by create.**/
+    static byte[] apply(byte[] base, byte[] delta) {
+        try {
+            DataInputStream in =
+                    new DataInputStream(new ByteArrayInputStream(delta));
+            if (in.readInt() != base.length) {
+                throw new IllegalArgumentException("Delta does not match "
+                        + "its base.");
+            }
+            byte[] target = new byte[in.readInt()];
+            int pos = 0;
+            while (pos < target.length) {
+                int op = in.readByte();
+                if (op == COPY) {
+                    int off = in.readInt();
+                    int len = in.readInt();
+                    System.arraycopy(base, off, target, pos, len);
+                    pos += len;
+                } else {
+                    int len = in.readInt();
+                    in.readFully(target, pos, len);
+                    pos += len;
+                }
+            }
+            return target;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes an instruction inserting DATA[FROM..TO) to OUT, if that
+     * range is not empty.
+     * @param out : Delta being written.
+     * @param data : Bytes of the target.
+     * @param from : int.
+     * @param to : int.**/
+    private static void insert(DataOutputStream out, byte[] data,
+                               int from, int to) throws IOException {
+        if (from < to) {
+            out.writeByte(INSERT);
+            out.writeInt(to - from);
+            out.write(data, from, to - from);
+        }
+    }
+
+    /** Returns the hash of the block of DATA starting at START.
+     * @param data : byte[].
+     * @param start : int.**/
+    private static int hash(byte[] data, int start) {
+        int h = 1;
+        for (int i = start; i < start + BLOCK; i += 1) {
+            h = 31 * h + data[i];
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,453 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/** Line-level diffs and three-way merges of text. Lines are compared
+ * through integer ids, matched with Myers' O(ND) algorithm in its
+ * linear-space form, and merged the way diff3 does: the lines that match
+ * the base on both sides split the files into stable regions, and only
+ * the regions between them where both sides changed differently become
+ * conflicts. Merged output is written line by line to a stream.
+ * <p>
+ * The inputs, however, are whole in memory as arrays of lines: the
+ * middle-snake search reaches into both files from either end, so it
+ * needs random access to every line of each. Callers only load the
+ * files whose blob hash codes differ, one file at a time per thread, so
+ * memory is bounded by a small multiple of the largest changed file.
+ * @author Neel Dhoundiyal **/
+class Diff {
+
+    /** Start of the current branch's side of a conflict. **/
+    static final String OURS = "<<<<<<< HEAD";
+
+    /** Separator between the two sides of a conflict. **/
+    static final String SEPARATOR = "=======";
+
+    /** End of the given branch's side of a conflict. **/
+    static final String THEIRS = ">>>>>>>";
+
+    /** Number of unchanged lines a unified diff shows around a change. **/
+    static final int CONTEXT = 3;
+
+    /** Name a unified diff gives a file that does not exist. **/
+    static final String NO_FILE = "/dev/null";
+
+    /** Returns the lines of TEXT, each with its line terminator, the last
+     * without one if TEXT does not end in a newline. The lines share
+     * nothing with TEXT, so a caller holding TEXT only for this call
+     * holds the file in memory twice until TEXT is dropped.
+     * @param text : String.**/
+    static String[] lines(String text) {
+        ArrayList<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            if (text.charAt(i) == '\n') {
+                result.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            result.add(text.substring(start));
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /** Returns the blocks of lines A and B have in common, in order, as
+     * {start in A, start in B, length}, followed by the empty block
+     * {A.length, B.length, 0}. Together they are a longest common
+     * subsequence of A and B.
+     * @param a : Lines.
+     * @param b : Lines.**/
+    static List<int[]> matches(String[] a, String[] b) {
+        HashMap<String, Integer> ids = new HashMap<>();
+        int[] x = intern(a, ids);
+        int[] y = intern(b, ids);
+        ArrayList<int[]> blocks = new ArrayList<>();
+        match(x, 0, x.length, y, 0, y.length, blocks);
+        blocks.add(new int[] {a.length, b.length, 0});
+        return blocks;
+    }
+
+    /** Returns the ids of LINES, equal lines getting equal ids from IDS.
+     * @param lines : Lines.
+     * @param ids : Ids given so far.**/
+    private static int[] intern(String[] lines, HashMap<String, Integer> ids) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i += 1) {
+            Integer id = ids.get(lines[i]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(lines[i], id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    /** Adds to BLOCKS the common blocks of A[ALO, AHI) and B[BLO, BHI),
+     * in order: the common prefix and suffix directly, and what lies
+     * between by splitting it at its middle snake.
+     * @param a : Ids of the first lines.
+     * @param aLo : int.
+     * @param aHi : int.
+     * @param b : Ids of the second lines.
+     * @param bLo : int.
+     * @param bHi : int.
+     * @param blocks : Blocks found so far.**/
+    private static void match(int[] a, int aLo, int aHi, int[] b, int bLo,
+                              int bHi, List<int[]> blocks) {
+        int prefix = 0;
+        while (aLo + prefix < aHi && bLo + prefix < bHi
+                && a[aLo + prefix] == b[bLo + prefix]) {
+            prefix += 1;
+        }
+        add(blocks, aLo, bLo, prefix);
+        aLo += prefix;
+        bLo += prefix;
+        int suffix = 0;
+        while (aHi - suffix > aLo && bHi - suffix > bLo
+                && a[aHi - suffix - 1] == b[bHi - suffix - 1]) {
+            suffix += 1;
+        }
+        aHi -= suffix;
+        bHi -= suffix;
+        if (aLo < aHi && bLo < bHi) {
+            int[] snake = middleSnake(a, aLo, aHi, b, bLo, bHi);
+            match(a, aLo, snake[0], b, bLo, snake[1], blocks);
+            add(blocks, snake[0], snake[1], snake[2] - snake[0]);
+            match(a, snake[2], aHi, b, snake[3], bHi, blocks);
+        }
+        add(blocks, aHi, bHi, suffix);
+    }
+
+    /** Adds the block of LEN lines at A in the first and B in the second
+     * to BLOCKS, joining it to the last block if it continues it.
+     * @param blocks : Blocks found so far.
+     * @param a : int.
+     * @param b : int.
+     * @param len : int.**/
+    private static void add(List<int[]> blocks, int a, int b, int len) {
+        if (len == 0) {
+            return;
+        }
+        if (!blocks.isEmpty()) {
+            int[] last = blocks.get(blocks.size() - 1);
+            if (last[0] + last[2] == a && last[1] + last[2] == b) {
+                last[2] += len;
+                return;
+            }
+        }
+        blocks.add(new int[] {a, b, len});
+    }
+
+    /** Returns the middle snake of a shortest edit script from
+     * A[ALO, AHI) to B[BLO, BHI), as {start in A, start in B, end in A,
+     * end in B}: the diagonal run where a search forward from the start
+     * and one backward from the end first meet. Both searches keep only
+     * one row of furthest-reaching points, so this takes linear space.
+     * @param a : Ids of the first lines.
+     * @param aLo : int.
+     * @param aHi : int.
+     * @param b : Ids of the second lines.
+     * @param bLo : int.
+     * @param bHi : int.**/
+    private static int[] middleSnake(int[] a, int aLo, int aHi, int[] b,
+                                     int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int max = (n + m + 1) / 2;
+        int off = max + 1;
+        int[] vf = new int[2 * off + 1];
+        int[] vb = new int[2 * off + 1];
+        for (int d = 0; d <= max; d += 1) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d
+                        || (k != d && vf[off + k - 1] < vf[off + k + 1])) {
+                    x = vf[off + k + 1];
+                } else {
+                    x = vf[off + k - 1] + 1;
+                }
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vf[off + k] = x;
+                int kr = delta - k;
+                if (odd && kr >= -(d - 1) && kr <= d - 1
+                        && x + vb[off + kr] >= n) {
+                    return new int[] {aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            for (int kr = -d; kr <= d; kr += 2) {
+                int xr;
+                if (kr == -d
+                        || (kr != d && vb[off + kr - 1] < vb[off + kr + 1])) {
+                    xr = vb[off + kr + 1];
+                } else {
+                    xr = vb[off + kr - 1] + 1;
+                }
+                int yr = xr - kr;
+                int xr0 = xr;
+                int yr0 = yr;
+                while (xr < n && yr < m
+                        && a[aHi - 1 - xr] == b[bHi - 1 - yr]) {
+                    xr += 1;
+                    yr += 1;
+                }
+                vb[off + kr] = xr;
+                int k = delta - kr;
+                if (!odd && k >= -d && k <= d && vf[off + k] + xr >= n) {
+                    return new int[] {aHi - xr, bHi - yr, aHi - xr0,
+                        bHi - yr0};
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake.");
+    }
+
+    /** Writes to OUT the unified diff from A, the lines of the file
+     * A_NAME, to B, the lines of B_NAME: the two names, then a hunk for
+     * each run of changes closer together than 2 * CONTEXT lines, with
+     * CONTEXT unchanged lines around it. Writes nothing if A and B are
+     * the same lines.
+     * @param aName : Name of the old file, or NO_FILE.
+     * @param bName : Name of the new file, or NO_FILE.
+     * @param a : Lines of the old file.
+     * @param b : Lines of the new file.
+     * @param out : Stream the diff is written to.**/
+    static void unified(String aName, String bName, String[] a, String[] b,
+                        OutputStream out) throws IOException {
+        ArrayList<int[]> changes = new ArrayList<>();
+        int ia = 0;
+        int ib = 0;
+        for (int[] m : matches(a, b)) {
+            if (m[0] > ia || m[1] > ib) {
+                changes.add(new int[] {ia, m[0], ib, m[1]});
+            }
+            ia = m[0] + m[2];
+            ib = m[1] + m[2];
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        writeLine(out, "--- " + aName);
+        writeLine(out, "+++ " + bName);
+        int first = 0;
+        while (first < changes.size()) {
+            int last = first;
+            while (last + 1 < changes.size()
+                    && changes.get(last + 1)[0] - changes.get(last)[1]
+                    <= 2 * CONTEXT) {
+                last += 1;
+            }
+            hunk(a, b, changes.subList(first, last + 1), out);
+            first = last + 1;
+        }
+    }
+
+    /** Writes to OUT one hunk of the unified diff from A to B, holding
+     * CHANGES, each {old start, old end, new start, new end}, and CONTEXT
+     * unchanged lines around them.
+     * @param a : Lines of the old file.
+     * @param b : Lines of the new file.
+     * @param changes : Changes of the hunk, in order.
+     * @param out : OutputStream.**/
+    private static void hunk(String[] a, String[] b, List<int[]> changes,
+                             OutputStream out) throws IOException {
+        int[] head = changes.get(0);
+        int[] tail = changes.get(changes.size() - 1);
+        int aLo = Math.max(0, head[0] - CONTEXT);
+        int aHi = Math.min(a.length, tail[1] + CONTEXT);
+        int bLo = head[2] - (head[0] - aLo);
+        int bHi = tail[3] + (aHi - tail[1]);
+        writeLine(out, "@@ -" + range(aLo, aHi) + " +" + range(bLo, bHi)
+                + " @@");
+        int ia = aLo;
+        for (int[] c : changes) {
+            writeMarked(out, ' ', a, ia, c[0]);
+            writeMarked(out, '-', a, c[0], c[1]);
+            writeMarked(out, '+', b, c[2], c[3]);
+            ia = c[1];
+        }
+        writeMarked(out, ' ', a, ia, aHi);
+    }
+
+    /** Returns the lines [LO, HI) as a unified diff range: the first line
+     * counting from 1 and the number of lines, which is left out when it
+     * is 1. An empty range names the line before it.
+     * @param lo : int.
+     * @param hi : int.**/
+    private static String range(int lo, int hi) {
+        if (hi - lo == 1) {
+            return Integer.toString(lo + 1);
+        }
+        return (hi == lo ? lo : lo + 1) + "," + (hi - lo);
+    }
+
+    /** Writes LINES[LO, HI) to OUT, each preceded by MARK. A last line
+     * with no newline is ended with one and the usual note.
+     * @param out : OutputStream.
+     * @param mark : ' ', '-' or '+'.
+     * @param lines : Lines.
+     * @param lo : int.
+     * @param hi : int.**/
+    private static void writeMarked(OutputStream out, char mark,
+                                    String[] lines, int lo, int hi)
+            throws IOException {
+        for (int i = lo; i < hi; i += 1) {
+            out.write(mark);
+            out.write(lines[i].getBytes(StandardCharsets.UTF_8));
+            if (!lines[i].endsWith("\n")) {
+                writeLine(out, "");
+                writeLine(out, "\\ No newline at end of file");
+            }
+        }
+    }
+
+    /** Writes to OUT the three-way merge of OURS and THEIRS, two versions
+     * of BASE, and returns true if any region conflicts. A region only
+     * one side changed takes that side; a region both sides changed the
+     * same way takes it once; any other region is written as a conflict
+     * with the current branch's lines first.
+     * @param base : Lines of the common ancestor.
+     * @param ours : Lines of the current branch.
+     * @param theirs : Lines of the given branch.
+     * @param out : Stream the merged text is written to.**/
+    static boolean merge3(String[] base, String[] ours, String[] theirs,
+                          OutputStream out) throws IOException {
+        List<int[]> sync = syncRegions(matches(base, ours),
+                matches(base, theirs), base.length, ours.length,
+                theirs.length);
+        boolean conflict = false;
+        int iz = 0;
+        int ia = 0;
+        int ib = 0;
+        for (int[] s : sync) {
+            if (s[2] > ia || s[4] > ib) {
+                boolean keptOurs = equal(base, iz, s[0], ours, ia, s[2]);
+                boolean keptTheirs = equal(base, iz, s[0], theirs, ib, s[4]);
+                if (equal(ours, ia, s[2], theirs, ib, s[4]) || keptTheirs) {
+                    write(out, ours, ia, s[2]);
+                } else if (keptOurs) {
+                    write(out, theirs, ib, s[4]);
+                } else {
+                    conflict = true;
+                    writeLine(out, OURS);
+                    writeSide(out, ours, ia, s[2]);
+                    writeLine(out, SEPARATOR);
+                    writeSide(out, theirs, ib, s[4]);
+                    writeLine(out, THEIRS);
+                }
+            }
+            write(out, base, s[0], s[1]);
+            iz = s[1];
+            ia = s[3];
+            ib = s[5];
+        }
+        return conflict;
+    }
+
+    /** Returns the regions of the base that match both other versions,
+     * as {base start, base end, ours start, ours end, theirs start,
+     * theirs end}, followed by an empty region at the ends of all three.
+     * @param ours : Blocks common to the base and ours.
+     * @param theirs : Blocks common to the base and theirs.
+     * @param baseLen : int.
+     * @param oursLen : int.
+     * @param theirsLen : int.**/
+    private static List<int[]> syncRegions(List<int[]> ours,
+                                           List<int[]> theirs, int baseLen,
+                                           int oursLen, int theirsLen) {
+        ArrayList<int[]> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < ours.size() && j < theirs.size()) {
+            int[] a = ours.get(i);
+            int[] b = theirs.get(j);
+            int start = Math.max(a[0], b[0]);
+            int end = Math.min(a[0] + a[2], b[0] + b[2]);
+            if (start < end) {
+                int as = a[1] + start - a[0];
+                int bs = b[1] + start - b[0];
+                result.add(new int[] {start, end, as, as + end - start,
+                    bs, bs + end - start});
+            }
+            if (a[0] + a[2] < b[0] + b[2]) {
+                i += 1;
+            } else {
+                j += 1;
+            }
+        }
+        result.add(new int[] {baseLen, baseLen, oursLen, oursLen,
+            theirsLen, theirsLen});
+        return result;
+    }
+
+    /** Returns true if X[XLO, XHI) and Y[YLO, YHI) are the same lines.
+     * @param x : Lines.
+     * @param xLo : int.
+     * @param xHi : int.
+     * @param y : Lines.
+     * @param yLo : int.
+     * @param yHi : int.**/
+    private static boolean equal(String[] x, int xLo, int xHi, String[] y,
+                                 int yLo, int yHi) {
+        if (xHi - xLo != yHi - yLo) {
+            return false;
+        }
+        for (int i = 0; i < xHi - xLo; i += 1) {
+            if (!x[xLo + i].equals(y[yLo + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Writes LINES[LO, HI) to OUT.
+     * @param out : OutputStream.
+     * @param lines : Lines.
+     * @param lo : int.
+     * @param hi : int.**/
+    private static void write(OutputStream out, String[] lines, int lo,
+                              int hi) throws IOException {
+        for (int i = lo; i < hi; i += 1) {
+            out.write(lines[i].getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Writes LINES[LO, HI) to OUT as one side of a conflict, ending the
+     * last line with a newline if it has none so that the marker after
+     * it starts its own line.
+     * @param out : OutputStream.
+     * @param lines : Lines.
+     * @param lo : int.
+     * @param hi : int.**/
+    private static void writeSide(OutputStream out, String[] lines, int lo,
+                                  int hi) throws IOException {
+        write(out, lines, lo, hi);
+        if (hi > lo && !lines[hi - 1].endsWith("\n")) {
+            writeLine(out, "");
+        }
+    }
+
+    /** Writes LINE and a line separator to OUT.
+     * @param out : OutputStream.
+     * @param line : String.**/
+    private static void writeLine(OutputStream out, String line)
+            throws IOException {
+        out.write((line + System.getProperty("line.separator"))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,182 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.write;
+
+/** Tests of Diff and the diff command.
+ *  @author Neel Dhoundiyal
+ */
+public class DiffTest {
+
+    /** Returns the three-way merge of OURS and THEIRS over BASE, followed
+     *  by "!" if it conflicts.
+     *  @param base : Text of the common ancestor.
+     *  @param ours : Text of the current branch.
+     *  @param theirs : Text of the given branch.*/
+    static String merge(String base, String ours, String theirs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            boolean conflict = Diff.merge3(Diff.lines(base),
+                    Diff.lines(ours), Diff.lines(theirs), out);
+            return out.toString(StandardCharsets.UTF_8)
+                    + (conflict ? "!" : "");
+        } catch (IOException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
+    /** Returns the unified diff from A to B, files named a and b.
+     *  @param a : Old text.
+     *  @param b : New text.*/
+    static String unified(String a, String b) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            Diff.unified("a", "b", Diff.lines(a), Diff.lines(b), out);
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (IOException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
+    /** Returns the numbers LO to HI, one per line, with the number
+     *  CHANGED replaced by WITH.
+     *  @param lo : int.
+     *  @param hi : int.
+     *  @param changed : int[] of numbers replaced.
+     *  @param with : String[] of their replacements.*/
+    static String numbers(int lo, int hi, int[] changed, String[] with) {
+        StringBuilder s = new StringBuilder();
+        for (int i = lo; i <= hi; i += 1) {
+            String line = Integer.toString(i);
+            for (int k = 0; k < changed.length; k += 1) {
+                if (changed[k] == i) {
+                    line = with[k];
+                }
+            }
+            s.append(line).append('\n');
+        }
+        return s.toString();
+    }
+
+    /** Changes far apart get their own hunks, each with three lines of
+     *  context; changes close together share one. **/
+    public static void testUnifiedHunks() {
+        String a = numbers(1, 20, new int[0], new String[0]);
+        assertEquals("two hunks", "--- a\n+++ b\n"
+                + "@@ -1,5 +1,5 @@\n 1\n-2\n+two\n 3\n 4\n 5\n"
+                + "@@ -15,6 +15,6 @@\n 15\n 16\n 17\n-18\n+eighteen\n"
+                + " 19\n 20\n",
+                unified(a, numbers(1, 20, new int[] {2, 18},
+                        new String[] {"two", "eighteen"})));
+        assertEquals("one hunk", "--- a\n+++ b\n"
+                + "@@ -1,12 +1,12 @@\n 1\n-2\n+two\n 3\n 4\n 5\n 6\n"
+                + " 7\n 8\n-9\n+nine\n 10\n 11\n 12\n",
+                unified(a, numbers(1, 20, new int[] {2, 9},
+                        new String[] {"two", "nine"})));
+        assertEquals("same", "", unified(a, a));
+    }
+
+    /** Added, deleted and unterminated files are marked as diff -u
+     *  marks them. **/
+    public static void testUnifiedEdges() {
+        assertEquals("added", "--- a\n+++ b\n@@ -0,0 +1 @@\n+new\n",
+                unified("", "new\n"));
+        assertEquals("deleted", "--- a\n+++ b\n@@ -1 +0,0 @@\n-x\n"
+                + "\\ No newline at end of file\n", unified("x", ""));
+        assertEquals("newline added", "--- a\n+++ b\n@@ -1 +1 @@\n-x\n"
+                + "\\ No newline at end of file\n+x\n",
+                unified("x", "x\n"));
+    }
+
+    /** diff compares the working files, the stage, or two commits, and
+     *  prints only the files that differ. **/
+    public static void testDiffCommand() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        write(dir, "a.txt", "1\n2\n3\n");
+        write(dir, "b.txt", "x\n");
+        gitlet(dir, "add", "a.txt", "b.txt");
+        gitlet(dir, "commit", "base");
+        String base = PackTest.head(dir);
+        write(dir, "a.txt", "1\nTWO\n3\n");
+        String change = "--- a/a.txt\n+++ b/a.txt\n@@ -1,3 +1,3 @@\n"
+                + " 1\n-2\n+TWO\n 3\n";
+        assertEquals("working", change, gitlet(dir, "diff"));
+        assertEquals("nothing staged", "", gitlet(dir, "diff", "--staged"));
+        gitlet(dir, "add", "a.txt");
+        assertEquals("working matches stage", "", gitlet(dir, "diff"));
+        assertEquals("staged", change, gitlet(dir, "diff", "--staged"));
+        gitlet(dir, "rm", "b.txt");
+        gitlet(dir, "commit", "two");
+        assertEquals("commits", change + "--- a/b.txt\n+++ /dev/null\n"
+                + "@@ -1 +0,0 @@\n-x\n",
+                gitlet(dir, "diff", base, PackTest.head(dir)));
+    }
+
+    /** Lines keep their terminators, and a last line without one is
+     *  kept too. **/
+    public static void testLines() {
+        assertEquals("lines", Arrays.asList("a\n", "\n", "b"),
+                Arrays.asList(Diff.lines("a\n\nb")));
+        assertEquals("empty", 0, Diff.lines("").length);
+    }
+
+    /** The common blocks found are a longest common subsequence. **/
+    public static void testMatches() {
+        String[] a = Diff.lines("a\nb\nc\nd\ne\n");
+        String[] b = Diff.lines("x\nb\nc\ny\ne\nz\n");
+        int common = 0;
+        for (int[] m : Diff.matches(a, b)) {
+            for (int i = 0; i < m[2]; i += 1) {
+                assertEquals("matched", a[m[0] + i], b[m[1] + i]);
+            }
+            common += m[2];
+        }
+        assertEquals("length", 3, common);
+    }
+
+    /** Changes to different lines merge without conflict. **/
+    public static void testMergeDisjoint() {
+        assertEquals("merged", "1\nA\n3\n4\nE\n",
+                merge("1\n2\n3\n4\n5\n", "1\nA\n3\n4\n5\n",
+                        "1\n2\n3\n4\nE\n"));
+        assertEquals("deletion and change", "2\n3\nC\n",
+                merge("1\n2\n3\n4\n", "2\n3\n4\n", "1\n2\n3\nC\n"));
+        assertEquals("same change once", "1\nX\n3\n",
+                merge("1\n2\n3\n", "1\nX\n3\n", "1\nX\n3\n"));
+    }
+
+    /** Only the lines both sides changed differently are marked, and the
+     *  rest of the file merges around them. **/
+    public static void testMergeConflictMinimal() {
+        assertEquals("conflict", "1\n" + Diff.OURS + "\nA\n"
+                + Diff.SEPARATOR + "\nB\n" + Diff.THEIRS + "\n3\n4\nE\n!",
+                merge("1\n2\n3\n4\n5\n", "1\nA\n3\n4\n5\n",
+                        "1\nB\n3\n4\nE\n"));
+        String conflict = merge("", "ours\n", "theirs\n");
+        assertTrue("added on both", conflict.endsWith("!"));
+    }
+
+    /** A large file with a change at each end merges cleanly, the
+     *  unchanged middle copied through. **/
+    public static void testMergeLargeFile() {
+        StringBuilder base = new StringBuilder();
+        for (int i = 0; i < 50000; i += 1) {
+            base.append("line ").append(i).append('\n');
+        }
+        String b = base.toString();
+        String ours = "first\n" + b;
+        String theirs = b + "last\n";
+        assertEquals("merged", "first\n" + b + "last\n",
+                merge(b, ours, theirs));
+    }
+
+}
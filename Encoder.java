@@ -0,0 +1,113 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Writes the compact binary form of Gitlet objects: varints,
+ * length-prefixed strings and hash codes as 20 raw bytes.
+ * @author Neel Dhoundiyal **/
+class Encoder {
+
+    /** Number of raw bytes in a SHA-1 hash. **/
+    static final int HASH_BYTES = 20;
+
+    /** Bits of a value carried by each byte of a varint. **/
+    private static final int VARINT_BITS = 7;
+
+    /** Low bits of a varint byte holding the value. **/
+    private static final int VARINT_MASK = 0x7f;
+
+    /** High bit of a varint byte, set when more bytes follow. **/
+    private static final int VARINT_MORE = 0x80;
+
+    /** Initial size of the buffer. **/
+    private static final int INITIAL = 256;
+
+    /** Bytes written so far, followed by free space. **/
+    private byte[] _buf;
+
+    /** Number of bytes written. **/
+    private int _size;
+
+    /** Encoder starting a record of kind TAG at format VERSION.
+     * @param tag : Reps the kind of record.
+     * @param version : Reps the format version of the record.**/
+    Encoder(int tag, int version) {
+        _buf = new byte[INITIAL];
+        write(tag);
+        writeVarint(version);
+    }
+
+    /** Makes room for N more bytes.
+     * @param n : int.**/
+    private void reserve(int n) {
+        if (_size + n > _buf.length) {
+            _buf = Arrays.copyOf(_buf, Math.max(_buf.length * 2, _size + n));
+        }
+    }
+
+    /** Writes the low byte of B.
+     * @param b : int.**/
+    private void write(int b) {
+        reserve(1);
+        _buf[_size++] = (byte) b;
+    }
+
+    /** Writes the unsigned value V in as few bytes as it needs.
+     * @param v : long.**/
+    void writeVarint(long v) {
+        while ((v & ~VARINT_MASK) != 0) {
+            write((int) (v & VARINT_MASK) | VARINT_MORE);
+            v >>>= VARINT_BITS;
+        }
+        write((int) v);
+    }
+
+    /** Writes S as its length followed by its UTF-8 bytes.
+     * @param s : String.**/
+    void writeString(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(b.length);
+        reserve(b.length);
+        System.arraycopy(b, 0, _buf, _size, b.length);
+        _size += b.length;
+    }
+
+    /** Writes B as a single byte.
+     * @param b : boolean.**/
+    void writeBoolean(boolean b) {
+        write(b ? 1 : 0);
+    }
+
+    /** Writes the 20 raw bytes of the hash code ID, dropping its kind
+     * prefix.
+     * @param id : String id.**/
+    void writeHash(String id) {
+        reserve(HASH_BYTES);
+        for (int i = 1; i < id.length(); i += 2) {
+            _buf[_size++] = (byte) (hexValue(id.charAt(i)) << 4
+                    | hexValue(id.charAt(i + 1)));
+        }
+    }
+
+    /** Returns the value of the hex digit C.
+     * @param c : char.**/
+    private static int hexValue(char c) {
+        return c <= '9' ? c - '0' : c - 'a' + 10;
+    }
+
+    /** Writes a flag for whether ID is there, then ID if it is.
+     * @param id : String id, or null.**/
+    void writeOptionalHash(String id) {
+        writeBoolean(id != null);
+        if (id != null) {
+            writeHash(id);
+        }
+    }
+
+    /** Returns the bytes written. **/
+    byte[] toByteArray() {
+        return Arrays.copyOf(_buf, _size);
+    }
+
+}
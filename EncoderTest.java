@@ -0,0 +1,72 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertThrows;
+import static gitlet.UnitTest.assertTrue;
+
+/** Tests of Encoder, Decoder and the records written with them.
+ *  @author Neel Dhoundiyal
+ */
+public class EncoderTest {
+
+    /** Every kind of field reads back as written. **/
+    public static void testFieldsRoundTrip() {
+        String id = "c" + Utils.sha1("x");
+        Encoder out = new Encoder('Z', 3);
+        long[] ints = {0, 1, 127, 128, 300, Integer.MAX_VALUE,
+            Long.MAX_VALUE, -1};
+        for (long v : ints) {
+            out.writeVarint(v);
+        }
+        out.writeString("");
+        out.writeString("caf\u00e9 \u2603");
+        out.writeBoolean(true);
+        out.writeBoolean(false);
+        out.writeHash(id);
+        out.writeOptionalHash(null);
+        out.writeOptionalHash(id);
+        Decoder in = new Decoder(out.toByteArray(), 'Z', 3);
+        assertEquals("version", 3, in.version());
+        for (long v : ints) {
+            assertEquals("varint", v, in.readVarint());
+        }
+        assertEquals("empty string", "", in.readString());
+        assertEquals("string", "caf\u00e9 \u2603", in.readString());
+        assertTrue("true", in.readBoolean());
+        assertTrue("false", !in.readBoolean());
+        assertEquals("hash", id, in.readHash("c"));
+        assertEquals("absent hash", null, in.readOptionalHash("c"));
+        assertEquals("present hash", id, in.readOptionalHash("c"));
+    }
+
+    /** Records of another kind, of a newer version, or cut short are
+     *  rejected. **/
+    public static void testBadRecordsRejected() {
+        byte[] data = new Encoder('Z', 2).toByteArray();
+        assertThrows("wrong tag", IllegalArgumentException.class,
+                () -> new Decoder(data, 'Y', 2));
+        assertThrows("newer version", IllegalArgumentException.class,
+                () -> new Decoder(data, 'Z', 1));
+        Encoder out = new Encoder('Z', 1);
+        out.writeString("long enough");
+        byte[] whole = out.toByteArray();
+        byte[] cut = Arrays.copyOf(whole, whole.length - 3);
+        assertThrows("truncated", IllegalArgumentException.class,
+                () -> new Decoder(cut, 'Z', 1).readString());
+    }
+
+    /** A tree reads back with the same entries and hash code. **/
+    public static void testTreeRoundTrip() {
+        TreeMap<String, String> entries = new TreeMap<>();
+        entries.put("a.txt", "b" + Utils.sha1("a"));
+        entries.put("dir", "t" + Utils.sha1("d"));
+        Tree t = new Tree(entries);
+        Tree d = Tree.decode(t.encode());
+        assertEquals("entries", entries, d.getEntries());
+        assertEquals("hash code", t.getHashCodeTree(), d.getHashCodeTree());
+    }
+
+}
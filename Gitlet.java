@@ -2,18 +2,38 @@ package gitlet;
 
 
 import java.io.ObjectInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.Serializable;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.Arrays;
 import java.util.Map;
-import java.util.Collection;
+import java.util.Objects;
 
 
 /** Represents a Gitlet repo.
@@ -23,49 +43,67 @@ public class Gitlet implements Serializable {
     /** Contains the hash code of the head of the commits.**/
     private String _head;
 
-    /** All the files that have been currently staged.**/
-    private ArrayList<Blob> _staged;
+    /** Maps the files that are being currently
+     * tracked in the working directory to their blob hash codes.**/
+    private HashMap<String, String> _trackedDir;
 
-    /** All the files that are being currently
-     * tracked in the working directory.**/
-    private HashMap<String, Blob> _trackedDir;
+    /** Maps the files that are being currently
+     * tracked not in the working directory to their blob hash codes.**/
+    private HashMap<String, String> _trackedNDir;
 
-    /** All the files that are being currently
-     * tracked not in the working directory.**/
-    private HashMap<String, Blob> _trackedNDir;
+    /** Current branch.**/
+    private String _currentBranch;
 
-    /** All the files that are not tracked.**/
-    private HashMap<String, Blob> _removed;
+    /** Maps each branch to the hash code of its head commit.*/
+    private HashMap<String, String> _branchStart;
 
-    /** All the commits in the Gitlet repo.**/
-    private HashMap<String, Commit> _commits;
+    /** Maps untracked files to their blob hash codes.*/
+    private HashMap<String, String> _untracked;
 
-    /** Current branch.**/
-    private String _currentBranch;
+    /** Merge Parent Hash.**/
+    private String _mergeParentHash;
 
-    /** All blobs involved.**/
-    private HashMap<String, Blob>  _allBlobs;
+    /** Changes this command has made to the repo, made durable together
+     * by save.**/
+    private transient Journal _journal;
 
-    /** Maps the commit hashcode to the its branch.*/
-    private HashMap<String, String> _branch;
+    /** Store holding every commit and blob of the repo. Only the refs and
+     * the index above are kept in .gitlet/info; objects are loaded from
+     * here on demand.**/
+    private transient ObjectStore _store;
 
-    /** Names of the blobs that are currently staged.*/
-    private ArrayList<String> _blobNamesStaged;
+    /** Commits recently read from or written to _store.**/
+    private transient CommitCache _commits;
 
-    /** Maps the start of the branch to the commit.*/
-    private HashMap<String, Commit> _branchStart;
+    /** Parents, generation numbers and times of the commits, kept in
+     * .gitlet/graph.**/
+    private transient CommitGraph _graph;
 
-    /** Untracked files.*/
-    private HashMap<String, Blob> _untracked;
+    /** Hash code, time and log message of every commit, indexed by word,
+     * kept in .gitlet/messages.**/
+    private transient MessageIndex _messages;
 
-    /** Checks if a remove happens.*/
-    private boolean _removechk;
+    /** Stat cache of the working directory, kept in .gitlet/index.**/
+    private transient Index _index;
 
-    /** Maps a branch to its split commit.*/
-    private HashMap<String, Commit> _branchSplit;
+    /** Files staged to be added or removed, kept in .gitlet/stage.**/
+    private transient Stage _stage;
 
-    /** Merge Parent Hash.**/
-    private String _mergeParentHash;
+    /** Files of the FILES_KEPT commits flattened most recently, keyed by
+     * commit hash code.**/
+    private transient LinkedHashMap<String, HashMap<String, String>> _files;
+
+    /** Number of commits whose flattened files are kept in _files.**/
+    private static final int FILES_KEPT = 8;
+
+    /** Size of the buffer log output is written through.**/
+    private static final int LOG_BUFFER = 1 << 16;
+
+    /** Commands that only read the repo. They change nothing kept in
+     * .gitlet/info, which is not written after them, and any number of
+     * them may run at once.**/
+    static final List<String> READ_ONLY = Arrays.asList("log",
+            "global-log", "find", "status", "diff");
 
 
 
@@ -84,44 +122,93 @@ public class Gitlet implements Serializable {
             } catch (ClassNotFoundException | IOException exception) {
                 System.out.println(exception);
             }
-
         } else {
             _head = null;
             _currentBranch = null;
-            _staged = new ArrayList<>();
             _trackedDir = new HashMap<>();
             _trackedNDir = new HashMap<>();
-            _removed = new HashMap<>();
-            _commits = new HashMap<>();
-            _allBlobs = new HashMap<>();
-            _branch = new HashMap<>();
-            _blobNamesStaged = new ArrayList<>();
             _branchStart = new HashMap<>();
             _untracked = new HashMap<>();
-            _removechk = false;
-            _branchSplit = new HashMap<>();
             _mergeParentHash = null;
         }
+        _journal = new Journal(filepath);
+        _store = new ObjectStore(Utils.join(filepath, "objects"), _journal);
+        _commits = new CommitCache(_store, CommitCache.CAPACITY);
+        _graph = new CommitGraph(Utils.join(filepath, "graph"), _journal);
+        _messages = new MessageIndex(Utils.join(filepath, "messages"),
+                _journal);
+        _index = new Index(Utils.join(filepath, "index"));
+        _stage = new Stage(Utils.join(filepath, "stage"), _journal);
+        _files = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, HashMap<String, String>> eldest) {
+                return size() > FILES_KEPT;
+            }
+        };
+    }
+
+    /** Writes the refs and tracked files back to .gitlet/info and
+     * commits the journal, so that they, the staging area, the graph and
+     * every object written by the command become durable together.**/
+    void save() {
+        _journal.replace(Utils.join(System.getProperty("user.dir"),
+                ".gitlet", "info"), Utils.serialize(this));
+        _journal.commit();
+    }
+
+    /** Drops the changes to the repo's state this command has not saved,
+     * as after a command that failed.**/
+    void discard() {
+        _journal.abort();
+    }
+
+    /** Takes over the commits OLD has decoded and the files of the commits
+     * it has flattened. Both depend only on commit hash codes, so they stay
+     * right whatever else changed in the repo since OLD was read.
+     * @param old : Gitlet read from the same repo earlier.**/
+    void keepCaches(Gitlet old) {
+        _commits.putAll(old._commits);
+        synchronized (old._files) {
+            _files.putAll(old._files);
+        }
+    }
+
+    /** Readies the repo to be shared by READ_ONLY commands running at
+     * once: every branch head is added to _graph, and every commit to
+     * _messages, now, so that none of them has to write either.**/
+    void prepareReads() {
+        for (String id : _branchStart.values()) {
+            graphPosition(id);
+        }
+        messages();
+        _journal.commit();
+    }
+
+    /** Returns true if prepareReads has nothing left to add: every
+     * branch head is in _graph already, and _messages has been built.**/
+    boolean readsPrepared() {
+        if (!_messages.built()) {
+            return false;
+        }
+        for (String id : _branchStart.values()) {
+            if (!_graph.contains(id)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /** Copies all the information of another
      * Gitlet object into the current one.
      * @param x : Gitlet Object*/
     public void copy(Gitlet x) {
-        this._commits = x._commits;
-        this._removed = x._removed;
-        this._staged = x._staged;
         this._head = x._head;
         this._trackedDir = x._trackedDir;
         this._trackedNDir = x._trackedNDir;
         this._currentBranch = x._currentBranch;
-        this._allBlobs = x._allBlobs;
-        this._branch = x._branch;
-        this._blobNamesStaged = x._blobNamesStaged;
         this._branchStart = x._branchStart;
         this._untracked = x._untracked;
-        this._removechk = x._removechk;
-        this._branchSplit = x._branchSplit;
         this._mergeParentHash = x._mergeParentHash;
     }
 
@@ -131,18 +218,17 @@ public class Gitlet implements Serializable {
         ArrayList<String> funcs = new ArrayList<>();
         String[] x = {"init", "add", "commit", "checkout", "log",
                       "global-log", "merge", "branch", "rm",
-                      "rm-branch", "reset", "status", "find"};
+                      "rm-branch", "reset", "status", "find", "pack",
+                      "diff"};
         funcs.addAll(Arrays.asList(x));
         String f = commands.get(0);
 
         if (!funcs.contains(f)) {
-            System.out.println("No command with that name exists.");
-            System.exit(0);
+            throw new GitletException("No command with that name exists.");
         }
 
         if (f.length() == 0) {
-            System.out.println("No function has been inputted.");
-            System.exit(0);
+            throw new GitletException("No function has been inputted.");
         }
 
         String func = commands.remove(0);
@@ -151,8 +237,8 @@ public class Gitlet implements Serializable {
         if (!func.equals("init")
                 && !Utils.join(System.getProperty("user.dir"),
                 ".gitlet").exists()) {
-            System.out.println("Not in an initialized Gitlet directory.");
-            System.exit(0);
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
         }
 
         run1(func, operands);
@@ -186,6 +272,8 @@ public class Gitlet implements Serializable {
             }
         }
 
+        _index.save();
+        _stage.save();
     }
 
     /** Control center of my Gitlet object.
@@ -196,7 +284,17 @@ public class Gitlet implements Serializable {
 
         if (func.equals("init")) {
             if (operands.size() == 0) {
-                init();
+                init(Codec.DEFAULT);
+                return;
+            } else if (operands.size() == 1
+                    && operands.get(0).startsWith("--codec=")) {
+                Codec codec = Codec.forName(operands.get(0)
+                        .substring("--codec=".length()));
+                if (codec == null) {
+                    throw new GitletException(
+                            "No codec with that name exists.");
+                }
+                init(codec);
                 return;
             } else {
                 System.out.println("Incorrect operands.");
@@ -204,8 +302,8 @@ public class Gitlet implements Serializable {
         }
 
         if (func.equals("add")) {
-            if (operands.size() == 1) {
-                add(operands.get(0));
+            if (operands.size() >= 1) {
+                add(operands);
             } else {
                 System.out.println("Incorrect operands.");
             }
@@ -242,29 +340,16 @@ public class Gitlet implements Serializable {
                      ArrayList<String> operands) throws IOException {
 
         if (func.equals("log")) {
-            if (operands.size() == 0) {
-                log();
-                return;
-            } else {
-                System.out.println("Incorrect operands.");
-            }
+            log(new LogFilter(operands, true));
+            return;
         }
 
         if (func.equals("global-log")) {
-            if (operands.size() == 0) {
-                globalLog();
-            } else {
-                System.out.println("Incorrect operands.");
-            }
+            globalLog(new LogFilter(operands, false));
         }
 
         if (func.equals("find")) {
-            if (operands.size() == 1) {
-                String message = operands.get(0);
-                find(message);
-            } else {
-                System.out.println("Incorrect operands.");
-            }
+            find(operands);
         }
 
         if (func.equals("branch")) {
@@ -284,28 +369,43 @@ public class Gitlet implements Serializable {
                 System.out.println("Incorrect operands.");
             }
         }
+
+        if (func.equals("pack")) {
+            if (operands.size() == 0) {
+                pack();
+            } else {
+                System.out.println("Incorrect operands.");
+            }
+        }
+
+        if (func.equals("diff")) {
+            if (operands.size() <= 2) {
+                diff(operands);
+            } else {
+                System.out.println("Incorrect operands.");
+            }
+        }
     }
 
-    /** Initializes a Gitlet repo.*/
-    public void init() throws IOException {
+    /** Initializes a Gitlet repo.
+     * @param codec : Codec every object of the repo is stored with.*/
+    public void init(Codec codec) throws IOException {
         File filepath = Utils.join(System.getProperty("user.dir"), ".gitlet");
         if (!filepath.exists()) {
             filepath.mkdir();
-            Utils.join(System.getProperty("user.dir"),
-                    ".gitlet/commits").mkdir();
-            Utils.join(System.getProperty("user.dir"),
-                    ".gitlet/staged").mkdir();
-            Utils.join(System.getProperty("user.dir"),
-                    ".gitlet/removed").mkdir();
+            _store = ObjectStore.create(Utils.join(filepath, "objects"),
+                    codec, _journal);
+            _commits = new CommitCache(_store, CommitCache.CAPACITY);
             Commit initial = new Commit();
-            _commits.put(initial.getHashCodeCommit(), initial);
+            _store.put(Tree.EMPTY,
+                    new Tree(new TreeMap<>()).encode());
+            _store.put(initial.getHashCodeCommit(), initial.encode());
+            _commits.put(initial);
+            _graph.add(Collections.singletonList(initial));
+            _messages.add(Collections.singletonList(initial));
             _currentBranch = "master";
             _head = initial.getHashCodeCommit();
-            _branch.put(initial.getHashCodeCommit(), initial.getBranch());
-            _branchStart.put("master", initial);
-            File newfile = Utils.join(System.getProperty("user.dir"),
-                    ".gitlet/commits/" + initial.getHashCodeCommit());
-            Utils.writeContents(newfile, Utils.serialize(initial));
+            _branchStart.put("master", initial.getHashCodeCommit());
         } else {
             System.out.println("A Gitlet version-control system "
                     + "already exists in the current directory.");
@@ -313,225 +413,283 @@ public class Gitlet implements Serializable {
 
     }
 
-    /** Adds files to the Gitlet repo.
-     * @param filename : String of the filepath.*/
-    private void add(String filename) {
-        if (!new File(filename).exists()) {
-            System.out.println("File does not exist.");
-            System.exit(0);
+    /** Adds every file named by OPERANDS: plain files, directories (all
+     * the files under them) and glob patterns. The files are hashed and
+     * copied into the object store in parallel, then staged one at a
+     * time in name order.
+     * @param operands : Files, directories and globs.*/
+    private void add(List<String> operands) {
+        ArrayList<String> files = expand(operands);
+        Map<String, String> hashes = _index.hashAll(files);
+        files.parallelStream().forEach(file ->
+                _store.putFile(hashes.get(file), file, new File(file)));
+        Commit prev = readCommit(_head);
+        for (String file : files) {
+            add(file, hashes.get(file), prev);
         }
-        Blob b = new Blob(filename);
-        if (_removed.containsKey(b.getName())) {
-            _removed.remove(filename);
-            Utils.join(System.getProperty("user.dir"),
-                    ".gitlet/removed/" + b.getHashCodeBlob()).delete();
-            _untracked.remove(filename);
-            _trackedDir.put(filename, b);
-        } else {
-            Commit prev = _commits.get(_head);
-            if (addHelperStage(b, prev)) {
-                if (!prev.getBlobs().containsKey(filename)) {
-                    Utils.writeContents(Utils.join
-                            (System.getProperty("user.dir"),
-                            ".gitlet/staged" + b.getHashCodeBlob()),
-                            Utils.serialize(b));
-                    _staged.add(b);
-                    _blobNamesStaged.add(b.getName());
-                    _trackedDir.put(b.getName(), b);
-                } else {
-                    if (!prev.getBlobs().get(filename).
-                            getHashCodeBlob()
-                            .equals(b.getHashCodeBlob())) {
-                        Utils.writeContents(Utils.join(
-                                System.getProperty("user.dir"),
-                                ".gitlet/staged" + b.getHashCodeBlob()),
-                                Utils.serialize(b));
-                        _staged.add(b);
-                        _blobNamesStaged.add(b.getName());
-                        _trackedDir.put(b.getName(), b);
+    }
+
+    /** Returns the sorted names of the files that OPERANDS of add refer
+     * to. A directory stands for every file under it, and an operand
+     * with a glob character is matched against every file in the
+     * working directory. Names are relative to the working directory
+     * and normalized, however the operands spell them. Exits if an
+     * operand names no file or one outside the repo.
+     * @param operands : Files, directories and globs.
+     * @return ArrayList*/
+    private ArrayList<String> expand(List<String> operands) {
+        TreeSet<String> files = new TreeSet<>();
+        Path root = Paths.get(System.getProperty("user.dir"));
+        for (String op : operands) {
+            File f = new File(op);
+            if (op.matches(".*[*?\\[{].*")) {
+                PathMatcher glob = FileSystems.getDefault()
+                        .getPathMatcher("glob:" + op);
+                int before = files.size();
+                for (String name : walk(root, root)) {
+                    if (glob.matches(Paths.get(name))) {
+                        files.add(name);
                     }
                 }
+                if (files.size() == before) {
+                    throw new GitletException("File does not exist.");
+                }
+            } else if (f.isDirectory()) {
+                name(root, f.toPath());
+                files.addAll(walk(root, f.toPath()));
+            } else if (f.exists()) {
+                files.add(name(root, f.toPath()));
+            } else {
+                throw new GitletException("File does not exist.");
             }
         }
+        return new ArrayList<>(files);
     }
 
+    /** Returns the name of the file or directory at PATH relative to
+     * ROOT, normalized and separated by '/'. Exits if PATH is outside
+     * ROOT or in its .gitlet directory.
+     * @param root : Working directory.
+     * @param path : Path of the file, relative or absolute.
+     * @return String*/
+    private static String name(Path root, Path path) {
+        String name = root.relativize(path.toAbsolutePath().normalize())
+                .toString().replace(File.separatorChar, '/');
+        if (name.equals("..") || name.startsWith("../")
+                || name.equals(".gitlet") || name.startsWith(".gitlet/")) {
+            throw new GitletException("File is outside the repository.");
+        }
+        return name;
+    }
 
-    /** Add Helper function.
-     * @return boolean
-     * @param b : Blob.
-     * @param chk : Commit.**/
-    public boolean addHelperStage(Blob b, Commit chk) {
-        boolean c = true;
-        for (int i = 0; i < _staged.size(); ++i) {
-            if (b.getName().equals(_staged.get(i).getName())) {
-                if (!b.getHashCodeBlob().
-                        equals(_staged.get(i).getHashCodeBlob())) {
-                    Utils.join(System.getProperty("user.dir"),
-                            ".gitlet/staged"
-                                    + _staged.get(i).getHashCodeBlob())
-                            .delete();
-                    _staged.remove(_staged.get(i));
-                    _staged.remove(_staged.get(i).getName());
-                    if (!chk.getBlobs().containsKey(b.getName())
-                            && !_staged.contains(b)) {
-                        Utils.writeContents(Utils.join
-                                (System.getProperty("user.dir"),
-                                ".gitlet/staged" + b.getHashCodeBlob()),
-                                Utils.serialize(b));
-                        _staged.add(b);
-                        _blobNamesStaged.add(b.getName());
-                        _trackedDir.put(b.getName(), b);
-                    }
-                }
-                c = false;
-                break;
-            }
+    /** Returns the names, relative to ROOT and separated by '/', of all
+     * the files under DIR, leaving out .gitlet.
+     * @param root : Working directory.
+     * @param dir : Directory to walk.
+     * @return List*/
+    private List<String> walk(Path root, Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(p -> root.relativize(p.toAbsolutePath()
+                            .normalize()).toString()
+                            .replace(File.separatorChar, '/'))
+                    .filter(name -> !name.startsWith(".gitlet/"))
+                    .collect(Collectors.toList());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
         }
-        return c;
+    }
+
+    /** Stages the working file FILENAME, whose blob HASH is already in
+     * the object store, against the head commit PREV. A file identical
+     * to its version in PREV is unstaged instead, and a file staged for
+     * removal is kept.
+     * @param filename : String of the filepath.
+     * @param hash : Hash code of the file's blob.
+     * @param prev : Head commit.*/
+    private void add(String filename, String hash, Commit prev) {
+        _untracked.remove(filename);
+        if (hash.equals(blobsOf(prev).get(filename))) {
+            _stage.unstage(filename);
+        } else {
+            _stage.add(filename, hash);
+        }
+        _trackedDir.put(filename, hash);
     }
 
     /** Creates commits.
      * @param log : Log message.**/
     public void commit(String log) throws IOException {
         if (log.equals("")) {
-            System.out.println("Please enter a commit message.");
-            System.exit(0);
-        } else if (_staged.size() == 0 && !_removechk) {
-            System.out.println("No changes added to the commit.");
-            System.exit(0);
+            throw new GitletException("Please enter a commit message.");
+        } else if (_stage.isEmpty()) {
+            throw new GitletException("No changes added to the commit.");
         }
         Commit prev = readCommit(_head);
-        Commit next = null;
-        HashMap<String, Blob> commitBlobs = new HashMap<>();
-        if (prev.getLogMessage().equals("initial commit")) {
-            for (int i = 0; i < _staged.size(); ++i) {
-                commitBlobs.put(_staged.get(i).getName(), _staged.get(i));
-            }
-            next = new Commit(log, prev.getHashCodeCommit(),
-                    _currentBranch, commitBlobs);
-        } else {
-            next = commitHelper(log, prev);
+        MessageIndex messages = messages();
+        Commit next = commitHelper(log, prev);
+        _store.put(next.getHashCodeCommit(), next.encode());
+        _commits.put(next);
+        graphPosition(prev.getHashCodeCommit());
+        if (next.getParentMerge() != null) {
+            graphPosition(next.getParentMerge());
         }
-        Utils.writeContents(Utils.join(System.getProperty("user.dir"),
-                ".gitlet/commits/" + next.getHashCodeCommit()),
-                             Utils.serialize(next));
-        _staged.clear();
-        _blobNamesStaged.clear();
+        _graph.add(Collections.singletonList(next));
+        messages.add(Collections.singletonList(next));
+        _stage.clear();
         _head = next.getHashCodeCommit();
-        _commits.put(next.getHashCodeCommit(), next);
         _currentBranch = next.getBranch();
-        _branch.put(next.getHashCodeCommit(),
-                next.getBranch());
-        _branchStart.put(_currentBranch, next);
+        _branchStart.put(_currentBranch, next.getHashCodeCommit());
         _mergeParentHash = null;
-        File dir = Utils.join(System.getProperty("user.dir"),
-                ".gitlet/staged/");
-        File[] directoryListing = dir.listFiles();
-        if (directoryListing != null) {
-            for (File file : directoryListing) {
-                file.delete();
-
-            }
-        }
-        _removechk = false;
-        _removed.clear();
-
     }
 
-    /** Commit Helper function.
+    /** Commit Helper function. The staged and removed files are applied
+     * to the tree of PREV, so only the trees of the directories they are
+     * in are written again.
      * @param log : String.
      * @param prev : Commit.
      * @return Commit. **/
-    @SuppressWarnings("unchecked")
     public Commit commitHelper(String log, Commit prev) {
-        Iterator blobs = prev.getBlobs().entrySet().iterator();
-        HashMap<String, Blob> commitBlobs = new HashMap<>();
-        while (blobs.hasNext()) {
-            Map.Entry<String, Blob> entry = (Map.Entry) blobs.next();
-            Blob compare = entry.getValue();
-            if (!_removed.containsKey(compare.getName())) {
-                if (_blobNamesStaged.contains(compare.getName())) {
-                    for (int i = 0; i < _staged.size(); ++i) {
-                        if (_staged.get(i).getName().equals
-                                (compare.getName())) {
-                            commitBlobs.put(_staged.get(i).getName(),
-                                    _staged.get(i));
-                        }
-                    }
-                } else {
-                    commitBlobs.put(compare.getName(), compare);
-                }
-            }
-        }
+        String tree = Tree.update(_store, prev.getTree(), _stage.changes());
         if (_mergeParentHash != null) {
             Commit merge = new Commit(log, prev.getHashCodeCommit(),
-                    _mergeParentHash, _currentBranch, commitBlobs);
+                    _mergeParentHash, _currentBranch, tree);
             return merge;
         }
         Commit next = new Commit(log, prev.getHashCodeCommit(),
-                _currentBranch, commitBlobs);
+                _currentBranch, tree);
         return next;
     }
 
-    /** Helps in getting previous commits.
+    /** Helps in getting previous commits. Each commit is decoded once
+     * and then served from _commits.
      * @return : Commit.
      * @param id : String id.**/
-    public Commit readCommit(String id) throws IOException {
-        Commit prev = null;
-        try {
-            FileInputStream f = new FileInputStream(
-                    Utils.join(System.getProperty("user.dir"),
-                    ".gitlet/commits/" + id));
-            ObjectInputStream input = new ObjectInputStream(f);
-            prev = (Commit) input.readObject();
-            input.close();
-        } catch (ClassNotFoundException exp) {
-            System.out.println(exp);
-            return null;
+    public Commit readCommit(String id) {
+        return _commits.get(id);
+    }
+
+    /** Returns the position of the commit ID in _graph, first adding it
+     * and any of its ancestors that the graph is missing, parents before
+     * children. Repos made before the graph existed are filled in this
+     * way as their commits are used.
+     * @return : int.
+     * @param id : String id.**/
+    private int graphPosition(String id) {
+        int pos = _graph.position(id);
+        if (pos != CommitGraph.NONE) {
+            return pos;
         }
-        return prev;
+        ArrayList<Commit> missing = new ArrayList<>();
+        HashSet<String> done = new HashSet<>();
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(id);
+        while (!stack.isEmpty()) {
+            String top = stack.peek();
+            if (done.contains(top) || _graph.contains(top)) {
+                stack.pop();
+                continue;
+            }
+            Commit c = readCommit(top);
+            boolean ready = true;
+            for (String p : new String[] {c.getParent(),
+                                          c.getParentMerge()}) {
+                if (p != null && !done.contains(p) && !_graph.contains(p)) {
+                    stack.push(p);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                done.add(top);
+                missing.add(c);
+            }
+        }
+        _graph.add(missing);
+        return _graph.position(id);
+    }
+
+    /** Returns the positions of the commits A and B in _graph, adding
+     * them first if need be. Adding B can merge layers of the graph and
+     * renumber A, so both are looked up again once both are in.
+     * @return : int[] of the two positions.
+     * @param a : String id.
+     * @param b : String id.**/
+    private int[] graphPositions(String a, String b) {
+        graphPosition(a);
+        graphPosition(b);
+        return new int[] {_graph.position(a), _graph.position(b)};
+    }
+
+    /** Returns the full hash code of the commit whose hash code is or
+     * starts with ID. Exits if there is no such commit or more than one.
+     * The prefix is looked up in the sorted pack indexes and in the one
+     * fan-out directory it names, so this does not scan every commit.
+     * @return : String.
+     * @param id : A hash code or a prefix of one.**/
+    private String resolveCommit(String id) {
+        if (!id.startsWith(ObjectStore.COMMIT)) {
+            throw new GitletException("No commit with that id exists.");
+        }
+        if (_store.contains(id)) {
+            return id;
+        }
+        List<String> matches = _store.ids(id);
+        if (matches.isEmpty()) {
+            throw new GitletException("No commit with that id exists.");
+        } else if (matches.size() > 1) {
+            throw new GitletException("Commit id " + id + " is ambiguous.");
+        }
+        return matches.get(0);
+    }
+
+    /** Returns the files of commit C, keyed by path, flattened from its
+     * tree the first time they are asked for.
+     * @return : HashMap.
+     * @param c : Commit.**/
+    private HashMap<String, String> blobsOf(Commit c) {
+        HashMap<String, String> files;
+        synchronized (_files) {
+            files = _files.get(c.getHashCodeCommit());
+        }
+        if (files == null) {
+            files = new HashMap<>();
+            Tree.flatten(_store, c.getTree(), "", files);
+            synchronized (_files) {
+                _files.put(c.getHashCodeCommit(), files);
+            }
+        }
+        return files;
+    }
+
+    /** Helps in getting the blobs referenced by commits.
+     * @return : Blob.
+     * @param name : Name of the file.
+     * @param id : String id.**/
+    public Blob readBlob(String name, String id) {
+        return new Blob(name, id, _store.getBytes(id));
     }
 
     /** Remove function.
      * @param name : Name of the file.**/
     public void rm(String name) throws IOException {
         Commit prev = readCommit(_head);
-        Blob b = prev.getBlobs().get(name);
-        if (!_blobNamesStaged.contains(name)
-                && !prev.getBlobs().containsKey(name)) {
-            System.out.println("No reason to remove the file.");
-            System.exit(0);
-        }
-        if (_blobNamesStaged.contains(name)) {
-            _blobNamesStaged.remove(name);
-            for (int i = 0; i < _staged.size(); ++i) {
-                if (_staged.get(i).getName().equals(name)) {
-                    File dir = Utils.join(
-                            System.getProperty("user.dir"),
-                            ".gitlet/staged/"
-                                    + _staged.get(i).getHashCodeBlob());
-                    dir.delete();
-                    _staged.remove(i);
-                    _untracked.put(name, new Blob(name));
-                    _trackedDir.remove(name);
-                    _removechk = true;
-                }
-            }
+        String b = Tree.lookup(_store, prev.getTree(), name);
+        if (!_stage.isAdded(name) && b == null) {
+            throw new GitletException("No reason to remove the file.");
         }
-
-        if (!prev.getLogMessage().equals("initial commit")) {
-            if (prev.getBlobs().containsKey(name)) {
-                _removed.put(name, b);
+        if (_stage.isAdded(name)) {
+            if (b == null) {
+                _untracked.put(name, _stage.get(name));
                 _trackedDir.remove(name);
-                Utils.writeContents(Utils.join
-                                (System.getProperty("user.dir"),
-                        ".gitlet/removed/"
-                                + b.getHashCodeBlob()),
-                        Utils.serialize(b));
-                Utils.join(System.getProperty("user.dir"),
-                        b.getName()).delete();
-                _removechk = true;
             }
+            _stage.unstage(name);
+        }
+
+        if (b != null) {
+            _stage.remove(name, b);
+            _trackedDir.remove(name);
+            deleteFile(Utils.join(System.getProperty("user.dir"), name));
         }
 
     }
@@ -540,23 +698,20 @@ public class Gitlet implements Serializable {
      * @param operands : Operands for a checkout.**/
     public void checkout(ArrayList<String> operands) throws IOException {
         if (!_untracked.isEmpty()) {
-            System.out.println("There is an untracked file in the way; "
+            throw new GitletException("There is an untracked file in the way; "
                     + "delete it or add it first.");
-            System.exit(0);
         }
         if (operands.size() == 2) {
             checkout1(operands, _head);
         } else if (operands.size() == 3) {
             if (!operands.get(1).equals("--")) {
-                System.out.println("Incorrect operands.");
-                System.exit(0);
+                throw new GitletException("Incorrect operands.");
             }
             checkout1(operands, operands.get(0));
         } else if (operands.size() == 1) {
             checkout3(operands);
         } else {
-            System.out.println("Incorrect operands.");
-            System.exit(0);
+            throw new GitletException("Incorrect operands.");
         }
     }
 
@@ -565,107 +720,75 @@ public class Gitlet implements Serializable {
      * @param id : String id.**/
     public void checkout1(ArrayList<String> operands,
                           String id) throws IOException {
-        if (id.length() < 10) {
-            boolean chk = false;
-            Collection<Commit> commits = _commits.values();
-            for (Commit c : commits) {
-                if (c.getHashCodeCommit().contains(id)) {
-                    chk = true;
-                    id = c.getHashCodeCommit();
-                    if (c.getBlobs().containsKey(operands.get(2))) {
-                        Blob b = c.getBlobs().get(operands.get(2));
-                        String content = b.getContent();
-                        Utils.join(System.getProperty("user.dir"),
-                                operands.get(2)).delete();
-                        Utils.writeContents(Utils.join
-                                (System.getProperty("user.dir"),
-                                        operands.get(2)), content);
-                    }
-                    return;
-                }
-            }
-
-        } else if (!_commits.containsKey(id)) {
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
-        }
-
-        Commit prev = _commits.get(id);
-        String name;
-        if (id == _head) {
-            name = operands.get(1);
-        } else {
-            name = operands.get(2);
-        }
-        if (prev.getBlobs().containsKey(name)) {
-            Blob b = prev.getBlobs().get(name);
-            String content = b.getContent();
-            Utils.join(System.getProperty("user.dir"), name).delete();
-            Utils.writeContents(Utils.join
-                    (System.getProperty("user.dir"), name), content);
+        Commit prev = readCommit(resolveCommit(id));
+        String name = operands.get(operands.size() - 1);
+        String blob = Tree.lookup(_store, prev.getTree(), name);
+        if (blob != null) {
+            _store.copyTo(blob,
+                    Utils.join(System.getProperty("user.dir"), name));
         } else {
             System.out.println("File does not exist in that commit.");
         }
 
     }
 
-    /** Checkout for operand size 3.
+    /** Checkout for operand size 3. Only the files that differ between
+     * the trees of the head and the branch are written or deleted.
      * @param operands : Operands.**/
-    @SuppressWarnings("unchecked")
     public void checkout3(ArrayList<String> operands) {
         String branch = operands.get(0);
         if (branch.equals(_currentBranch)) {
-            System.out.println("No need to checkout the current branch.");
-            System.exit(0);
+            throw new GitletException(
+                    "No need to checkout the current branch.");
         }
         if (!_branchStart.containsKey(branch)) {
-            System.out.println("No such branch exists.");
-            System.exit(0);
-        }
-
-        Commit chk = _branchStart.get(branch);
-        HashMap<String, Blob> newtracked = new HashMap<>();
-        if (untracked().size() == 0) {
-            Collection<Blob> coll = chk.getBlobs().values();
-            for (Blob b :  coll) {
-                if (chk.getBlobs().containsKey(b.getName())) {
-                    Utils.join(System.getProperty("user.dir"),
-                            b.getName()).delete();
-                    Blob x = chk.getBlobs().get(b.getName());
-                    Utils.writeContents(Utils.join
-                            (System.getProperty("user.dir"),
-                                    b.getName()), x.getContent());
-                }
-                newtracked.put(b.getName(), b);
-            }
-        } else {
-            System.out.println("There is an untracked file "
+            throw new GitletException("No such branch exists.");
+        }
+
+        Commit chk = readCommit(_branchStart.get(branch));
+        if (untracked().size() != 0) {
+            throw new GitletException("There is an untracked file "
                      + "in the way; "
                     + "delete it or add it first.");
-            System.exit(0);
         }
-
-        List<String> filenames = Utils.plainFilenamesIn
-                (System.getProperty("user.dir"));
-        for (String name : filenames) {
-            if (!chk.getBlobs().containsKey(name)) {
-                Utils.join(System.getProperty("user.dir"), name).delete();
+        TreeMap<String, String[]> changes = new TreeMap<>();
+        Tree.diff(_store, readCommit(_head).getTree(), chk.getTree(), "",
+                changes);
+        for (Map.Entry<String, String[]> e : changes.entrySet()) {
+            File file = Utils.join(System.getProperty("user.dir"),
+                    e.getKey());
+            if (e.getValue()[1] == null) {
+                deleteFile(file);
+            } else {
+                _store.copyTo(e.getValue()[1], file);
+            }
+        }
+        HashMap<String, String> newtracked = blobsOf(chk);
+        for (String name : _stage.added().keySet()) {
+            if (!newtracked.containsKey(name)) {
+                deleteFile(Utils.join(System.getProperty("user.dir"),
+                        name));
             }
         }
         _trackedDir.clear();
         _trackedDir.putAll(newtracked);
-        _staged.clear();
-        File dir = Utils.join(
-                System.getProperty("user.dir"), ".gitlet/staged/");
-        File[] directoryListing = dir.listFiles();
-        if (directoryListing != null) {
-            for (File file : directoryListing) {
-                file.delete();
+        _stage.clear();
+        _currentBranch = branch;
+        _head = _branchStart.get(_currentBranch);
+    }
 
-            }
+    /** Deletes FILE from the working directory, then each parent
+     * directory it leaves empty, up to the working directory itself.
+     * @param file : File.**/
+    private static void deleteFile(File file) {
+        File root = new File(System.getProperty("user.dir"))
+                .getAbsoluteFile();
+        file.delete();
+        File dir = file.getAbsoluteFile().getParentFile();
+        while (dir != null && !dir.equals(root)
+                && dir.toPath().startsWith(root.toPath()) && dir.delete()) {
+            dir = dir.getParentFile();
         }
-        _currentBranch = branch;
-        _head = _branchStart.get(_currentBranch).getHashCodeCommit();
     }
 
     /** Helper function for checkout3.
@@ -675,73 +798,209 @@ public class Gitlet implements Serializable {
     public boolean checkout3Helper(Commit chk, ArrayList<String> files) {
         boolean c = true;
         for (String file : files) {
-            if (!_staged.contains(file)
+            if (!_stage.isAdded(file)
                     && !_trackedDir.containsKey(file)
                     && !_trackedNDir.containsKey(file)
-                    && chk.getBlobs().containsKey(file)) {
+                    && blobsOf(chk).containsKey(file)) {
                 c = false;
-                System.out.println("There is an untracked file in the way;"
+                throw new GitletException(
+                        "There is an untracked file in the way;"
                         + " delete it or add it first.");
-                System.exit(0);
             }
         }
         return c;
     }
 
-    /** Outputs the log.**/
-    public void log() throws IOException {
-        Commit print = readCommit(_head);
-        while (print != null) {
-            System.out.println("===");
-            System.out.println("commit " + print.getHashCodeCommit());
-            System.out.println("Date: " + print.getTimeStamp());
-            System.out.print(print.getLogMessage());
-            if (print.getLogMessage().equals("initial commit")) {
-                break;
+    /** Outputs the log of the head commit, newest first, keeping to the
+     * commits FILTER chooses. The history is walked through _graph by
+     * commit time, following first parents unless FILTER says both, so
+     * only the commits printed are read.
+     * @param filter : LogFilter.**/
+    public void log(LogFilter filter) throws IOException {
+        int pos = graphPosition(_head);
+        Iterator<Integer> walk = _graph.byTime(
+                Collections.singletonList(pos), !filter.allParents());
+        printLog(new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return walk.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return _graph.id(walk.next());
+            }
+        }, filter, "\n\n");
+    }
+
+
+    /** Outputs the global log: every commit, newest first, keeping to
+     * the commits FILTER chooses. Commit times are taken from _graph
+     * where it has them, so only commits outside it and those printed
+     * are read, and the commits are ordered as they are printed.
+     * @param filter : LogFilter.**/
+    public void globalLog(LogFilter filter) {
+        HashMap<String, Long> times = new HashMap<>();
+        HashMap<String, Integer> gens = new HashMap<>();
+        for (String id : _store.ids(ObjectStore.COMMIT)) {
+            int pos = _graph.position(id);
+            if (pos == CommitGraph.NONE) {
+                times.put(id, readCommit(id).getTime());
+                gens.put(id, 0);
             } else {
-                System.out.println("\n");
+                times.put(id, _graph.time(pos));
+                gens.put(id, _graph.generation(pos));
             }
-            print = readCommit(print.getParent());
         }
-    }
+        PriorityQueue<String> queue = new PriorityQueue<>((x, y) ->
+                !times.get(x).equals(times.get(y))
+                        ? Long.compare(times.get(y), times.get(x))
+                        : !gens.get(x).equals(gens.get(y))
+                        ? Integer.compare(gens.get(y), gens.get(x))
+                        : x.compareTo(y));
+        queue.addAll(times.keySet());
+        printLog(new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
 
+            @Override
+            public String next() {
+                return queue.poll();
+            }
+        }, filter, "\n");
+    }
 
-    /** Outputs the global log. **/
-    @SuppressWarnings("unchecked")
-    public void globalLog() {
-        Iterator commits = _commits.entrySet().iterator();
-        while (commits.hasNext()) {
-            Map.Entry<String, Commit> entry =
-                    (Map.Entry<String, Commit>) commits.next();
-            System.out.println("===");
-            System.out.println("commit " + entry.getKey());
-            System.out.println("Date: " + entry.getValue().getTimeStamp());
-            System.out.print(entry.getValue().getLogMessage());
-            if (!commits.hasNext()) {
+    /** Prints the commits IDS gives, newest first, that FILTER chooses,
+     * with SEPARATOR between them. Output goes through a buffer, and
+     * stops early once whoever reads it has gone away, so a log cut
+     * short by its reader reads no more of the history.
+     * @param ids : Commit hash codes, newest first.
+     * @param filter : LogFilter.
+     * @param separator : String.**/
+    private void printLog(Iterator<String> ids, LogFilter filter,
+                          String separator) {
+        PrintStream out = new PrintStream(
+                new BufferedOutputStream(System.out, LOG_BUFFER), false);
+        int printed = 0;
+        while (printed < filter.limit() && ids.hasNext()) {
+            String id = ids.next();
+            int pos = _graph.position(id);
+            long time = pos == CommitGraph.NONE ? readCommit(id).getTime()
+                    : _graph.time(pos);
+            if (filter.before(time)) {
+                break;
+            }
+            if (!filter.inSpan(time)) {
+                continue;
+            }
+            Commit c = readCommit(id);
+            if (!filter.matches(c.getLogMessage())) {
+                continue;
+            }
+            if (printed > 0) {
+                out.print(separator);
+            }
+            out.println("===");
+            out.println("commit " + id);
+            out.println("Date: " + c.getTimeStamp());
+            out.print(c.getLogMessage());
+            printed += 1;
+            if (System.out.checkError()) {
                 break;
-            } else {
-                System.out.print("\n");
             }
         }
+        out.flush();
     }
 
 
-    /** Finds commits with a particular log message.
-     * @param message : String.**/
-    @SuppressWarnings("unchecked")
-    public void find(String message) {
-        boolean chk = false;
-        Iterator commits = _commits.entrySet().iterator();
-        while (commits.hasNext()) {
-            Map.Entry<String, Commit> entry =
-                    (Map.Entry<String, Commit>) commits.next();
-            if (entry.getValue().getLogMessage().equals(message)) {
-                System.out.println(entry.getKey());
-                chk = true;
+    /** Finds commits with a particular log message, or meeting the
+     * other conditions OPERANDS give, newest first. The query is answered
+     * from _messages, so no commit is read.
+     * @param operands : Operands of find.**/
+    public void find(ArrayList<String> operands) {
+        List<String> ids = messages().find(
+                new MessageIndex.Query(operands));
+        if (ids.isEmpty()) {
+            System.out.println("Found no commit with that message.");
+            return;
+        }
+        PrintStream out = new PrintStream(
+                new BufferedOutputStream(System.out, LOG_BUFFER), false);
+        for (String id : ids) {
+            out.println(id);
+        }
+        out.flush();
+    }
+
+    /** Returns _messages, first adding every commit of the repo to it if
+     * the repo is older than it.**/
+    private MessageIndex messages() {
+        if (!_messages.built()) {
+            ArrayList<Commit> all = new ArrayList<>();
+            for (String id : _store.ids(ObjectStore.COMMIT)) {
+                all.add(readCommit(id));
             }
+            all.sort(Comparator.comparingLong(Commit::getTime));
+            _messages.add(all);
         }
-        if (!chk) {
-            System.out.println("Found no commit with that message.");
+        return _messages;
+    }
+
+    /** Packs every commit, tree and blob reachable from a branch head
+     * into a single packfile. Commits are walked from the heads back, so
+     * each older version of a file or directory is stored as a delta
+     * against the newer version seen before it. Objects no head reaches
+     * stay where they are, loose or carried into the new pack, since
+     * global-log, find and checkout by id can still reach them.**/
+    public void pack() {
+        LinkedHashMap<String, String> objects = new LinkedHashMap<>();
+        HashMap<String, String> newer = new HashMap<>();
+        ArrayDeque<String> queue = new ArrayDeque<>(_branchStart.values());
+        while (!queue.isEmpty()) {
+            String id = queue.poll();
+            if (objects.containsKey(id) || !_store.contains(id)) {
+                continue;
+            }
+            Commit c = readCommit(id);
+            objects.put(id, null);
+            packTree(c.getTree(), "", objects, newer);
+            if (c.getParent() != null) {
+                queue.add(c.getParent());
+            }
+            if (c.getParentMerge() != null) {
+                queue.add(c.getParentMerge());
+            }
+        }
+        _store.pack(objects);
+    }
+
+    /** Adds the tree ID at PATH to OBJECTS, with everything under it
+     * that is not there yet, each with the newer version of the same
+     * path in NEWER as its delta base. A tree already in OBJECTS is
+     * skipped whole, since everything under it was added with it.
+     * @param id : String id.
+     * @param path : Path of the tree, ending in '/', or "".
+     * @param objects : Objects to pack and their delta bases.
+     * @param newer : Maps paths to the last version added.**/
+    private void packTree(String id, String path,
+                          LinkedHashMap<String, String> objects,
+                          HashMap<String, String> newer) {
+        if (objects.containsKey(id)) {
+            return;
+        }
+        objects.put(id, newer.get(path));
+        newer.put(path, id);
+        for (Map.Entry<String, String> e
+                : Tree.read(_store, id).getEntries().entrySet()) {
+            String name = path + e.getKey();
+            if (Tree.isTree(e.getValue())) {
+                packTree(e.getValue(), name + "/", objects, newer);
+            } else if (!objects.containsKey(e.getValue())) {
+                objects.put(e.getValue(), newer.get(name));
+                newer.put(name, e.getValue());
+            }
         }
     }
 
@@ -751,9 +1010,7 @@ public class Gitlet implements Serializable {
         if (_branchStart.containsKey(name)) {
             System.out.println("A branch with that name already exists.");
         } else {
-            Commit head = readCommit(_head);
-            _branchStart.put(name, head);
-            _branchSplit.put(name, head);
+            _branchStart.put(name, _head);
         }
     }
 
@@ -771,8 +1028,8 @@ public class Gitlet implements Serializable {
 
     /** Outputs the status.**/
     public void status() throws IOException {
-        Map<String, Commit> map = _branchStart;
-        Map<String, Commit> sorted = new TreeMap<>();
+        Map<String, String> map = _branchStart;
+        Map<String, String> sorted = new TreeMap<>();
         sorted.putAll(map);
         System.out.println("=== Branches ===");
         if (!_branchStart.isEmpty()) {
@@ -786,20 +1043,19 @@ public class Gitlet implements Serializable {
         }
         System.out.println();
         System.out.println("=== Staged Files ===");
-        if (!_staged.isEmpty()) {
-            for (Blob s : _staged) {
-                System.out.println(s.getName());
-            }
+        for (String s : _stage.added().keySet()) {
+            System.out.println(s);
         }
         System.out.println();
         System.out.println("=== Removed Files ===");
-        if (!_removed.isEmpty()) {
-            for (String s : _removed.keySet()) {
-                System.out.println(s);
-            }
+        for (String s : _stage.removed()) {
+            System.out.println(s);
         }
         System.out.println();
         System.out.println("=== Modifications Not Staged For Commit ===");
+        for (String file : modifications()) {
+            System.out.println(file);
+        }
         System.out.println();
         System.out.println("=== Untracked Files ===");
         for (String file : untracked()) {
@@ -812,41 +1068,167 @@ public class Gitlet implements Serializable {
     /** Reset the repo to commit id.
      * @param id : String.**/
     public void reset(String id) throws IOException {
-        if (!_commits.containsKey(id)) {
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
-        }
+        id = resolveCommit(id);
         if (untracked().size() != 0) {
             System.out.println("There is an untracked file in the way; "
                     + "delete it or add it first.");
         }
 
         Commit c = readCommit(id);
-        for (String s : c.getBlobs().keySet()) {
-            if (_trackedDir.containsKey(s) || _staged.contains(s)) {
+        for (String s : blobsOf(c).keySet()) {
+            if (_trackedDir.containsKey(s) || _stage.isAdded(s)) {
                 ArrayList<String> operands = new ArrayList<>();
                 String[] o = {id, "--", s};
                 operands.addAll(Arrays.asList(o));
                 checkout(operands);
             }
         }
-        _staged.clear();
+        _stage.clear();
         _currentBranch = c.getBranch();
-        _branchStart.put(_currentBranch, c);
+        _branchStart.put(_currentBranch, c.getHashCodeCommit());
         _head = c.getHashCodeCommit();
 
     }
 
+    /** Returns the files whose working version differs from the one that
+     * would be committed, each marked (modified) or (deleted), in order.
+     * Only files whose stat data changed since they were last hashed are
+     * read.
+     * @return ArrayList**/
+    private ArrayList<String> modifications() {
+        TreeMap<String, String> expected = expected();
+        Map<String, String> hashes = working(expected.keySet());
+        ArrayList<String> result = new ArrayList<>();
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            String now = hashes.get(e.getKey());
+            if (now == null) {
+                result.add(e.getKey() + " (deleted)");
+            } else if (!now.equals(e.getValue())) {
+                result.add(e.getKey() + " (modified)");
+            }
+        }
+        return result;
+    }
+
+    /** Returns the files the next commit would hold if nothing more were
+     * staged, keyed by path and mapped to their blob hash codes: those of
+     * the head commit, less the ones staged for removal, with the staged
+     * ones added.
+     * @return TreeMap**/
+    private TreeMap<String, String> expected() {
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (Map.Entry<String, String> e
+                : blobsOf(readCommit(_head)).entrySet()) {
+            if (!_stage.isRemoved(e.getKey())) {
+                expected.put(e.getKey(), e.getValue());
+            }
+        }
+        expected.putAll(_stage.added());
+        return expected;
+    }
+
+    /** Returns the blob hash codes of those of the working files NAMES
+     * that exist, keyed by path, hashing only the ones whose stat data
+     * changed since they were last hashed.
+     * @param names : Paths of the files.
+     * @return Map**/
+    private Map<String, String> working(Collection<String> names) {
+        ArrayList<String> present = new ArrayList<>();
+        for (String name : names) {
+            if (Utils.join(System.getProperty("user.dir"), name).isFile()) {
+                present.add(name);
+            }
+        }
+        return _index.hashAll(present);
+    }
+
+    /** Prints, as unified diffs, how the files named by OPERANDS differ.
+     * With no operands, the working files are compared with the staging
+     * area; with --staged, the staging area with the head commit; with
+     * one commit id, the working files with that commit; and with two,
+     * the first commit with the second. Files are told apart by their
+     * blob hash codes, and only the ones that differ are read. Their
+     * diffs are made in parallel but printed from this thread, which is
+     * the one whose output goes to the client under the daemon.
+     * @param operands : Nothing, --staged, or one or two commit ids.**/
+    public void diff(ArrayList<String> operands) {
+        TreeMap<String, String[]> changes = new TreeMap<>();
+        boolean toWorking = operands.size() < 2
+                && !operands.contains("--staged");
+        if (operands.size() == 1 && operands.get(0).equals("--staged")) {
+            HashMap<String, String> head = blobsOf(readCommit(_head));
+            for (Map.Entry<String, String> e
+                    : _stage.changes().entrySet()) {
+                String old = head.get(e.getKey());
+                if (!Objects.equals(old, e.getValue())) {
+                    changes.put(e.getKey(), new String[] {old,
+                        e.getValue()});
+                }
+            }
+        } else if (operands.size() == 2) {
+            Commit a = readCommit(resolveCommit(operands.get(0)));
+            Commit b = readCommit(resolveCommit(operands.get(1)));
+            Tree.diff(_store, a.getTree(), b.getTree(), "", changes);
+        } else {
+            Map<String, String> from = operands.isEmpty() ? expected()
+                    : blobsOf(readCommit(resolveCommit(operands.get(0))));
+            TreeSet<String> names = new TreeSet<>(from.keySet());
+            names.addAll(expected().keySet());
+            Map<String, String> now = working(names);
+            for (String name : names) {
+                String old = from.get(name);
+                if (!Objects.equals(old, now.get(name))) {
+                    changes.put(name, new String[] {old, now.get(name)});
+                }
+            }
+        }
+        List<byte[]> diffs = new ArrayList<>(changes.entrySet())
+                .parallelStream()
+                .map(e -> diffFile(e.getKey(), e.getValue(), toWorking))
+                .collect(Collectors.toList());
+        for (byte[] d : diffs) {
+            System.out.write(d, 0, d.length);
+        }
+        System.out.flush();
+    }
+
+    /** Returns the unified diff of the file NAME from its blob IDS[0] to
+     * its blob IDS[1], either of which may be null for a missing file.
+     * If WORKING, the new version is read from the working file instead.
+     * Both versions are read whole, as Diff needs every line of each,
+     * and the diff is kept in memory so that files diffed in parallel
+     * print in order.
+     * @param name : Path of the file.
+     * @param ids : {old hash code, new hash code}.
+     * @param working : True if the new version is the working file.
+     * @return byte[]**/
+    private byte[] diffFile(String name, String[] ids, boolean working) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String now = working && ids[1] != null
+                ? Utils.readContentsAsString(
+                        Utils.join(System.getProperty("user.dir"), name))
+                : content(name, ids[1]);
+        try {
+            Diff.unified(ids[0] == null ? Diff.NO_FILE : "a/" + name,
+                    ids[1] == null ? Diff.NO_FILE : "b/" + name,
+                    Diff.lines(content(name, ids[0])), Diff.lines(now), out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return out.toByteArray();
+    }
+
     /** Returns untracked files in the
-     * working directory.
+     * working directory and the directories under it, in order.
      * @return ArrayList
      * */
     private ArrayList<String> untracked() {
         ArrayList<String> untracked = new ArrayList<>();
-        List<String> workingFileNames = Utils.plainFilenamesIn
-                (System.getProperty("user.dir"));
+        Path root = Paths.get(System.getProperty("user.dir"));
+        List<String> workingFileNames = walk(root, root);
+        workingFileNames.sort(null);
         for (String file : workingFileNames) {
-            if (!_blobNamesStaged.contains(file)
+            if (!_stage.isAdded(file)
                     && !_trackedDir.containsKey(file)
                     && !_trackedNDir.containsKey(file)) {
                 untracked.add(file);
@@ -858,119 +1240,158 @@ public class Gitlet implements Serializable {
     /** Merge branch to the _currentBranch.
      * @param branch : String.**/
     public void merge(String branch) throws IOException {
-        if (_staged.size() != 0 || _removed.size() != 0) {
-            System.out.println("You have uncommitted changes.");
-            System.exit(0);
-        } else if (!_branchSplit.containsKey(branch)) {
-            System.out.println(" A branch with that name does not exist.");
-            System.exit(0);
-        } else if (_branch.equals(_currentBranch)) {
-            System.out.println("Cannot merge a branch with itself.");
-            System.exit(0);
+        if (!_stage.isEmpty()) {
+            throw new GitletException("You have uncommitted changes.");
+        } else if (!_branchStart.containsKey(branch)) {
+            throw new GitletException(
+                    " A branch with that name does not exist.");
+        } else if (branch.equals(_currentBranch)) {
+            throw new GitletException("Cannot merge a branch with itself.");
         } else if (!_untracked.isEmpty() || untracked().size() > 0) {
-            System.out.println("There is an untracked file in the way; "
+            throw new GitletException("There is an untracked file in the way; "
                      + "delete it or add it first.");
-            System.exit(0);
         } else {
             if (basicMerge(branch)) {
-                System.exit(0);
+                return;
             } else {
-                Commit current = _branchStart.get(_currentBranch);
-                Commit b = _branchStart.get(branch);
-                Commit split = _branchSplit.get(branch);
-                ArrayList<String> files = filenames(current, b, split);
-                HashMap<String, Blob> cBlobs = current.getBlobs();
-                HashMap<String, Blob> branchBlobs = b.getBlobs();
-                HashMap<String, Blob> splitBlobs = split.getBlobs();
-                for (String file : files) {
-                    if (branchBlobs.containsKey(file)) {
-                        if (cBlobs.containsKey(file)
-                                && splitBlobs.containsKey(file)) {
-                            Blob br = branchBlobs.get(file);
-                            Blob cr = cBlobs.get(file);
-                            Blob spl = splitBlobs.get(file);
-                            if (cr.getContent().equals(spl.getContent())
-                                    && !br.getContent().
-                                    equals(spl.getContent())) {
-                                checkoutstager(b, file);
-                            } else if (!cr.getContent().equals(spl.getContent())
-                                       && br.getContent().
-                                    equals(spl.getContent())) {
-                                continue;
-                            } else if (br.getContent().
-                                    equals(cr.getContent())
-                                    && !cr.getContent().
-                                    equals(spl.getContent())) {
-                                continue;
-                            } else if (!br.getContent().equals(cr.getContent())
-                                    && !cr.getContent().equals(spl.getContent())
-                                    && !br.getContent().
-                                    equals(spl.getContent())) {
-                                mergeConflict(br, cr);
-                                continue;
-                            }
-                        }
+                Commit current = readCommit(_branchStart.get(_currentBranch));
+                Commit b = readCommit(_branchStart.get(branch));
+                Commit split = readCommit(mergeBase(
+                        current.getHashCodeCommit(), b.getHashCodeCommit()));
+                TreeMap<String, String[]> ours = new TreeMap<>();
+                TreeMap<String, String[]> theirs = new TreeMap<>();
+                Tree.diff(_store, split.getTree(), current.getTree(), "",
+                        ours);
+                Tree.diff(_store, split.getTree(), b.getTree(), "", theirs);
+                TreeMap<String, String[]> taken = new TreeMap<>();
+                ArrayList<String[]> conflicts = new ArrayList<>();
+                for (Map.Entry<String, String[]> e : theirs.entrySet()) {
+                    String[] mine = ours.get(e.getKey());
+                    if (mine == null) {
+                        taken.put(e.getKey(), e.getValue());
+                    } else if (!Objects.equals(mine[1], e.getValue()[1])) {
+                        conflicts.add(new String[] {e.getKey(),
+                            e.getValue()[0], mine[1], e.getValue()[1]});
                     }
                 }
-                _mergeParentHash =  b.getBranch();
+                mergeFiles(taken, conflicts);
+                _mergeParentHash = b.getHashCodeCommit();
                 commit("Merged " + branch + " into " + _currentBranch + ".");
             }
         }
     }
 
-    /** Merge branch to the _currentBranch.
-     * @param c : Commit
-     * @param b : Commit
-     * @param s : Commit
-     * @return ArrayList**/
-    public ArrayList<String> filenames(Commit c, Commit b, Commit s) {
-        ArrayList<String> files = new ArrayList<>();
-        for (String f : c.getBlobs().keySet()) {
-            files.add(f);
+    /** Returns the hash code of the latest common ancestor of the commits
+     * A and B, found through _graph. After a criss-cross merge there can
+     * be several equally good ones; the most recent of them is used.
+     * Histories with no commit in common cannot be merged.
+     * @param a : String id.
+     * @param b : String id.
+     * @return String**/
+    private String mergeBase(String a, String b) {
+        int[] pos = graphPositions(a, b);
+        List<Integer> bases = _graph.mergeBases(pos[0], pos[1]);
+        if (bases.isEmpty()) {
+            throw new GitletException(
+                    "The branches have no common ancestor.");
         }
-        for (String f : b.getBlobs().keySet()) {
-            if (!files.contains(f)) {
-                files.add(f);
+        int best = bases.get(0);
+        for (int p : bases) {
+            if (_graph.time(p) > _graph.time(best)) {
+                best = p;
             }
         }
-        for (String f : s.getBlobs().keySet()) {
-            if (!files.contains(f)) {
-                files.add(f);
+        return _graph.id(best);
+    }
+
+    /** Applies the outcome of a three-way merge to the working directory
+     * and the stage. TAKEN maps the files only the given branch changed
+     * to their {split, given} blob hash codes, the given one null where
+     * the branch deleted the file. CONFLICTS lists {path, split, current,
+     * given} for the files both sides changed differently, which are
+     * merged line by line in parallel. Only those files are ever read.
+     * @param taken : Files to take from the given branch.
+     * @param conflicts : Files both sides changed.**/
+    private void mergeFiles(TreeMap<String, String[]> taken,
+                            List<String[]> conflicts) {
+        String dir = System.getProperty("user.dir");
+        taken.entrySet().parallelStream().forEach(e -> {
+            File file = Utils.join(dir, e.getKey());
+            if (e.getValue()[1] == null) {
+                deleteFile(file);
+            } else {
+                _store.copyTo(e.getValue()[1], file);
+            }
+        });
+        List<Boolean> conflicted = conflicts.parallelStream()
+                .map(this::mergeFile).collect(Collectors.toList());
+        for (Map.Entry<String, String[]> e : taken.entrySet()) {
+            if (e.getValue()[1] == null) {
+                _stage.remove(e.getKey(), e.getValue()[0]);
+                _trackedDir.remove(e.getKey());
+            } else {
+                _stage.add(e.getKey(), e.getValue()[1]);
+                _trackedDir.put(e.getKey(), e.getValue()[1]);
             }
         }
-        return files;
-
+        if (!conflicts.isEmpty()) {
+            ArrayList<String> names = new ArrayList<>();
+            for (String[] c : conflicts) {
+                names.add(c[0]);
+            }
+            add(names);
+        }
+        if (conflicted.contains(true)) {
+            System.out.println("Encountered a merge conflict.");
+        }
     }
 
-    /** Merge branch to the _currentBranch.
-     * @param b : b
-     * @param  f : f**/
-    public void checkoutstager(Commit b, String f) throws IOException {
-        ArrayList<String> operands = new ArrayList<>();
-        operands.add(b.getHashCodeCommit());
-        operands.add("--");
-        operands.add(f);
-        checkout(operands);
-        add(f);
-
+    /** Writes the line-level three-way merge of the file C[0] over it,
+     * from its blobs C[1] at the split point, C[2] in the current branch
+     * and C[3] in the given branch, any of which may be null. Returns
+     * true if some lines conflict. The three versions are read whole,
+     * since Diff matches lines by random access; only files changed on
+     * both sides get here, and the merged text is streamed to the file.
+     * @param c : {path, split, current, given}.
+     * @return boolean**/
+    private boolean mergeFile(String[] c) {
+        File file = Utils.join(System.getProperty("user.dir"), c[0]);
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(file))) {
+            return Diff.merge3(Diff.lines(content(c[0], c[1])),
+                    Diff.lines(content(c[0], c[2])),
+                    Diff.lines(content(c[0], c[3])), out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
     }
 
+    /** Returns the text of the blob ID of the file NAME, or "" if ID is
+     * null.
+     * @param name : Name of the file.
+     * @param id : String id, or null.
+     * @return String**/
+    private String content(String name, String id) {
+        return id == null ? "" : readBlob(name, id).getContent();
+    }
 
-    /** Merge branch to the _currentBranch.
+    /** Merge branch to the _currentBranch. Handles the cases where one
+     * head is an ancestor of the other, asking _graph.
      * @param branch : String.
      * @return boolean**/
     public boolean basicMerge(String branch) throws IOException {
-        Commit current = _branchStart.get(_currentBranch);
-        Commit b = _branchStart.get(branch);
-        Commit split = _branchSplit.get(branch);
-        if (split.getHashCodeCommit().
-                equals(b.getHashCodeCommit())) {
+        int[] pos = graphPositions(_branchStart.get(_currentBranch),
+                _branchStart.get(branch));
+        int current = pos[0];
+        int b = pos[1];
+        if (_graph.isAncestor(b, current)) {
             System.out.println("Given branch is an ancestor "
                      + "of the current branch.");
             return true;
         }
-        if (split.getHashCodeCommit().equals(current.getHashCodeCommit())) {
-            reset(b.getHashCodeCommit());
+        if (_graph.isAncestor(current, b)) {
+            reset(_graph.id(b));
             System.out.println("Current branch fast-forwarded.");
             return true;
         } else {
@@ -978,42 +1399,6 @@ public class Gitlet implements Serializable {
         }
     }
 
-    /** Builds the file.
-     * @param branch : String.
-     * @param current : String.
-     * @return String**/
-    public String fileBuild(String current, String branch) {
-        String content = "<<<<<<< HEAD"
-                + System.getProperty("line.separator")
-                + current
-                + "======="
-                + System.getProperty("line.separator")
-                + branch
-                + ">>>>>>>"
-                + System.getProperty("line.separator");
-        return content;
-    }
-
-    /** Merge conflict.
-     * @param c : Blob
-     * @param b : Blob **/
-    public void mergeConflict(Blob c, Blob b) throws IOException {
-        if (c == null) {
-            String content = fileBuild("", b.getContent());
-        } else if (b == null) {
-            String content = fileBuild(c.getContent(), "");
-        }
-        String content = fileBuild(c.getContent(), b.getContent());
-
-
-        Utils.join(System.getProperty("user.dir"),
-                c.getName()).delete();
-        Utils.writeContents(Utils.join(System.getProperty("user.dir"),
-                c.getName()), content);
-        add(c.getName());
-        System.out.println("Encountered a merge conflict.");
-    }
-
 }
 
 
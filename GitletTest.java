@@ -0,0 +1,223 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.read;
+import static gitlet.UnitTest.write;
+
+/** Tests of Gitlet commands, run through gitlet.Main in a temporary
+ *  directory.
+ *  @author Neel Dhoundiyal
+ */
+public class GitletTest {
+
+    /** Returns a new repo with a.txt committed as "one". **/
+    static File repo() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        write(dir, "a.txt", "one");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "add a");
+        return dir;
+    }
+
+    /** Returns the store of the repo in DIR.
+     *  @param dir : Working directory of the repo.*/
+    static ObjectStore store(File dir) {
+        return new ObjectStore(new File(dir, ".gitlet/objects"));
+    }
+
+    /** Returns the lines of the section TITLE of status in DIR.
+     *  @param dir : Working directory of the repo.
+     *  @param title : String.*/
+    static String section(File dir, String title) {
+        String status = gitlet(dir, "status");
+        int start = status.indexOf("=== " + title + " ===\n");
+        int end = status.indexOf("\n\n", start);
+        return status.substring(start + title.length() + 9,
+                end < 0 ? status.length() : end + 1);
+    }
+
+    /** Returns what the process P prints, once it exits.
+     *  @param p : Process.*/
+    static String output(Process p) throws Exception {
+        String out = new String(p.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        p.waitFor();
+        return out;
+    }
+
+    /** Read-only commands run at once on a repo whose commit graph and
+     *  message index must be filled in, while another process commits,
+     *  each see the history whole, and leave no temporary files. **/
+    public static void testConcurrentReaders() throws Exception {
+        File dir = repo();
+        for (int i = 0; i < 20; i += 1) {
+            write(dir, "a.txt", "version " + i);
+            gitlet(dir, "add", "a.txt");
+            gitlet(dir, "commit", "commit " + i);
+        }
+        String log = gitlet(dir, "log");
+        String found = gitlet(dir, "find", "commit 7");
+        UnitTest.deleteAll(new File(dir, ".gitlet/graph"));
+        UnitTest.deleteAll(new File(dir, ".gitlet/messages"));
+        write(dir, "b.txt", "b");
+        gitlet(dir, "add", "b.txt");
+        ArrayList<Process> logs = new ArrayList<>();
+        ArrayList<Process> finds = new ArrayList<>();
+        for (int i = 0; i < 6; i += 1) {
+            logs.add(UnitTest.start(dir, "log"));
+            finds.add(UnitTest.start(dir, "find", "commit 7"));
+        }
+        Process writer = UnitTest.start(dir, "commit", "add b");
+        for (Process p : logs) {
+            assertTrue("whole log", output(p).endsWith(log));
+        }
+        for (Process p : finds) {
+            assertEquals("found", found, output(p));
+        }
+        writer.waitFor();
+        assertTrue("committed", gitlet(dir, "log").endsWith("add b\n\n"
+                + log));
+        for (String sub : new String[] {"graph", "messages", "tmp"}) {
+            String[] names = new File(dir, ".gitlet/" + sub).list();
+            for (String name : names == null ? new String[0] : names) {
+                assertTrue("temporary " + name, !name.endsWith(".tmp"));
+            }
+        }
+    }
+
+    /** A read-only command on a repo without a commit graph fills the
+     *  graph in once and keeps it for the commands after it. **/
+    public static void testReadOnlyKeepsGraph() {
+        File dir = repo();
+        gitlet(dir, "branch", "other");
+        write(dir, "a.txt", "two");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "change a");
+        String log = gitlet(dir, "log");
+        UnitTest.deleteAll(new File(dir, ".gitlet/graph"));
+        assertEquals("same log", log, gitlet(dir, "log"));
+        assertTrue("graph kept",
+                new File(dir, ".gitlet/graph/chain").isFile());
+        CommitGraph graph = new CommitGraph(new File(dir, ".gitlet/graph"));
+        assertEquals("every commit", 3, graph.size());
+    }
+
+    /** checkout and reset take any unambiguous prefix of a commit id,
+     *  and reject one that names no commit. **/
+    public static void testAbbreviatedIds() {
+        File dir = repo();
+        String first = PackTest.head(dir);
+        write(dir, "a.txt", "two");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "change a");
+        String prefix = first.substring(0, 7);
+        gitlet(dir, "checkout", prefix, "--", "a.txt");
+        assertEquals("checked out", "one", read(dir, "a.txt"));
+        gitlet(dir, "reset", prefix);
+        assertEquals("reset", first, PackTest.head(dir));
+        gitlet(dir, "pack");
+        gitlet(dir, "reset", prefix);
+        assertEquals("reset packed", first, PackTest.head(dir));
+        assertEquals("unknown", "No commit with that id exists.\n",
+                gitlet(dir, "reset", "c" + "0".repeat(10)));
+    }
+
+    /** status lists tracked files changed or deleted since they were
+     *  committed or staged, and no others. **/
+    public static void testModificationsNotStaged() {
+        File dir = repo();
+        write(dir, "b.txt", "b");
+        write(dir, "c.txt", "c");
+        gitlet(dir, "add", "b.txt", "c.txt");
+        gitlet(dir, "commit", "add b and c");
+        write(dir, "a.txt", "changed");
+        new File(dir, "b.txt").delete();
+        write(dir, "d.txt", "staged");
+        write(dir, "e.txt", "staged");
+        gitlet(dir, "add", "d.txt", "e.txt");
+        write(dir, "d.txt", "changed after staging");
+        new File(dir, "e.txt").delete();
+        write(dir, "f.txt", "untracked");
+        assertEquals("modifications", "a.txt (modified)\nb.txt (deleted)\n"
+                + "d.txt (modified)\ne.txt (deleted)\n",
+                section(dir, "Modifications Not Staged For Commit"));
+        assertEquals("untracked", "f.txt\n",
+                section(dir, "Untracked Files"));
+        gitlet(dir, "add", "a.txt", "d.txt");
+        gitlet(dir, "rm", "b.txt");
+        assertEquals("after staging", "e.txt (deleted)\n",
+                section(dir, "Modifications Not Staged For Commit"));
+    }
+
+    /** add takes files, directories and globs, in parallel, under the
+     *  names they have relative to the repo however they are spelled,
+     *  and nothing outside the repo. **/
+    public static void testAddPathsNormalized() {
+        File dir = UnitTest.tempDir();
+        File repo = new File(dir, "repo");
+        repo.mkdir();
+        gitlet(repo, "init");
+        write(repo, "a.txt", "a");
+        write(repo, "sub/b.txt", "b");
+        write(repo, "sub/deep/c.txt", "c");
+        write(repo, "g1.md", "g");
+        write(repo, "g2.md", "g");
+        write(dir, "outside.txt", "x");
+        gitlet(repo, "add", "./a.txt", "sub/../sub", "*.md");
+        assertEquals("staged", "a.txt\ng1.md\ng2.md\nsub/b.txt\n"
+                + "sub/deep/c.txt\n", section(repo, "Staged Files"));
+        assertEquals("outside", "File is outside the repository.\n",
+                gitlet(repo, "add", "../outside.txt"));
+        assertEquals("parent", "File is outside the repository.\n",
+                gitlet(repo, "add", ".."));
+        gitlet(repo, "commit", "normalized");
+        assertEquals("clean", "", section(repo,
+                "Modifications Not Staged For Commit"));
+        assertEquals("nothing untracked", "", section(repo,
+                "Untracked Files"));
+    }
+
+    /** Checking out a branch removes the directories left empty by the
+     *  files it deletes, and no others. **/
+    public static void testCheckoutPrunesEmptyDirs() {
+        File dir = repo();
+        gitlet(dir, "branch", "other");
+        write(dir, "sub/deep/b.txt", "b");
+        write(dir, "sub/c.txt", "c");
+        write(dir, "keep/d.txt", "d");
+        gitlet(dir, "add", "sub", "keep");
+        gitlet(dir, "commit", "add dirs");
+        gitlet(dir, "rm", "keep/d.txt");
+        gitlet(dir, "commit", "remove d");
+        assertTrue("rm pruned", !new File(dir, "keep").exists());
+        new File(dir, "empty").mkdir();
+        gitlet(dir, "checkout", "other");
+        assertTrue("sub pruned", !new File(dir, "sub").exists());
+        assertTrue("others kept", new File(dir, "empty").isDirectory()
+                && new File(dir, "a.txt").isFile());
+        gitlet(dir, "checkout", "master");
+        assertEquals("restored", "b", read(dir, "sub/deep/b.txt"));
+    }
+
+    /** A file version tracked by several commits is stored once, and
+     *  commits refer to it by hash code. **/
+    public static void testBlobsSharedAcrossCommits() {
+        File dir = repo();
+        write(dir, "b.txt", "two");
+        gitlet(dir, "add", "b.txt");
+        gitlet(dir, "commit", "add b");
+        write(dir, "b.txt", "three");
+        gitlet(dir, "add", "b.txt");
+        gitlet(dir, "commit", "change b");
+        assertEquals("blobs stored", 3,
+                store(dir).ids(ObjectStore.BLOB).size());
+    }
+
+}
@@ -0,0 +1,212 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/** The stat cache of the working directory. For every file hashed it
+ * remembers the size, modification time and inode the file had, and the
+ * blob hash code of its contents, so a file is only read and hashed
+ * again once its stat data changes. Kept in .gitlet/index. Commands
+ * running at once in one process share it, so it is synchronized, and
+ * processes reading the same repo may write it at once, so it is
+ * written to a temporary file and renamed into place.
+ * @author Neel Dhoundiyal **/
+class Index {
+
+    /** Tag of the encoded index. **/
+    static final int TAG = 'I';
+
+    /** Format version of the encoded index. **/
+    static final int VERSION = 1;
+
+    /** Nanoseconds in a millisecond. **/
+    private static final long NANOS_PER_MS = 1000000L;
+
+    /** A file modified less than this many nanoseconds before it was
+     * hashed may change again without its modification time moving, so
+     * its entry is not trusted. **/
+    private static final long RACY_NANOS = 1000 * NANOS_PER_MS;
+
+    /** Mask keeping the low 32 bits of an inode key. **/
+    private static final long KEY_MASK = 0xffffffffL;
+
+    /** Stat data and hash code of one file. **/
+    private static class Entry {
+        /** Size of the file in bytes. **/
+        private long _size;
+        /** Modification time of the file in nanoseconds. **/
+        private long _mtime;
+        /** Inode key of the file, or 0 where there is none. **/
+        private long _inode;
+        /** Blob hash code of the file. **/
+        private String _hash;
+    }
+
+    /** The file the index is kept in. **/
+    private File _file;
+
+    /** Entries keyed by file name. **/
+    private HashMap<String, Entry> _entries;
+
+    /** True if the entries changed since the index was read. **/
+    private boolean _dirty;
+
+    /** Index read from FILE, or empty if FILE does not exist.
+     * @param file : Reps the index file.**/
+    Index(File file) {
+        _file = file;
+        _entries = new HashMap<>();
+        if (!file.exists()) {
+            return;
+        }
+        Decoder in = new Decoder(Utils.readContents(file), TAG, VERSION);
+        int n = (int) in.readVarint();
+        for (int i = 0; i < n; i += 1) {
+            String name = in.readString();
+            Entry e = new Entry();
+            e._size = in.readVarint();
+            e._mtime = in.readVarint();
+            e._inode = in.readVarint();
+            e._hash = in.readHash(ObjectStore.BLOB);
+            _entries.put(name, e);
+        }
+    }
+
+    /** Returns the blob hash code of the working file NAME, hashing it
+     * only if its stat data differs from what the index recorded.
+     * @param name : Name of the file.**/
+    String hash(String name) {
+        return hashAll(Collections.singletonList(name)).get(name);
+    }
+
+    /** Returns the blob hash codes of the working files NAMES, keyed by
+     * name. Files whose stat data still matches the index are not read;
+     * the rest are hashed in parallel on the common fork-join pool and
+     * then recorded in the index one by one.
+     * @param names : Names of the files.**/
+    synchronized Map<String, String> hashAll(Collection<String> names) {
+        HashMap<String, String> result = new HashMap<>();
+        ArrayList<String> stale = new ArrayList<>();
+        ArrayList<Entry> stats = new ArrayList<>();
+        for (String name : names) {
+            Entry e = stat(new File(name));
+            Entry known = _entries.get(name);
+            if (matches(known, e)) {
+                result.put(name, known._hash);
+            } else {
+                stale.add(name);
+                stats.add(e);
+            }
+        }
+        String[] hashes = new String[stale.size()];
+        IntStream.range(0, hashes.length).parallel().forEach(i ->
+                hashes[i] = ObjectStore.BLOB
+                        + Blob.hash(stale.get(i), new File(stale.get(i))));
+        long now = System.currentTimeMillis() * NANOS_PER_MS;
+        for (int i = 0; i < hashes.length; i += 1) {
+            Entry e = stats.get(i);
+            e._hash = hashes[i];
+            if (e._mtime > now - RACY_NANOS) {
+                e._size = -1;
+            }
+            _entries.put(stale.get(i), e);
+            result.put(stale.get(i), hashes[i]);
+            _dirty = true;
+        }
+        return result;
+    }
+
+    /** Returns the hash code of NAME if its stat data still matches what
+     * the index recorded, or null if it has to be hashed.
+     * @param name : Name of the file.**/
+    String cached(String name) {
+        Entry known = _entries.get(name);
+        File f = new File(name);
+        if (known != null && f.isFile() && matches(known, stat(f))) {
+            return known._hash;
+        }
+        return null;
+    }
+
+    /** Returns true if the recorded entry KNOWN can be trusted for a file
+     * whose stat data is now E.
+     * @param known : Entry, or null.
+     * @param e : Entry.**/
+    private static boolean matches(Entry known, Entry e) {
+        return known != null && known._size >= 0 && known._size == e._size
+                && known._mtime == e._mtime && known._inode == e._inode;
+    }
+
+    /** Forgets the file NAME.
+     * @param name : Name of the file.**/
+    synchronized void remove(String name) {
+        if (_entries.remove(name) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Returns the stat data of F, without a hash code.
+     * @param f : File.**/
+    private static Entry stat(File f) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(f.toPath(),
+                    BasicFileAttributes.class);
+            Entry e = new Entry();
+            e._size = attrs.size();
+            e._mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            Object key = attrs.fileKey();
+            e._inode = key == null ? 0 : key.hashCode() & KEY_MASK;
+            return e;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the number of files the index has entries for. **/
+    synchronized int size() {
+        return _entries.size();
+    }
+
+    /** Writes the index back to its file if it changed, first dropping
+     * the entries of files that no longer exist, such as those removed,
+     * rm'd or left behind by a checkout, so that the index only grows
+     * with the working directory. **/
+    synchronized void save() {
+        if (_entries.keySet().removeIf(name -> !new File(name).isFile())) {
+            _dirty = true;
+        }
+        if (!_dirty) {
+            return;
+        }
+        Encoder out = new Encoder(TAG, VERSION);
+        out.writeVarint(_entries.size());
+        for (Map.Entry<String, Entry> me : _entries.entrySet()) {
+            Entry e = me.getValue();
+            out.writeString(me.getKey());
+            out.writeVarint(e._size);
+            out.writeVarint(e._mtime);
+            out.writeVarint(e._inode);
+            out.writeHash(e._hash);
+        }
+        File tmp;
+        try {
+            tmp = File.createTempFile(_file.getName(), ".tmp",
+                    _file.getParentFile());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Utils.writeContents(tmp, out.toByteArray());
+        ObjectStore.rename(tmp, _file);
+        _dirty = false;
+    }
+
+}
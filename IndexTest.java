@@ -0,0 +1,74 @@
+package gitlet;
+
+import java.io.File;
+
+import static gitlet.UnitTest.assertEquals;
+
+/** Tests of Index, the stat cache.
+ *  @author Neel Dhoundiyal
+ */
+public class IndexTest {
+
+    /** Returns a file in a new directory holding TEXT, last modified a
+     *  minute ago so that its stat data can be trusted.
+     *  @param text : String.*/
+    static File oldFile(String text) {
+        File f = new File(UnitTest.tempDir(), "a.txt");
+        Utils.writeContents(f, text);
+        f.setLastModified(System.currentTimeMillis() - 60000);
+        return f;
+    }
+
+    /** Entries of files that are gone are dropped when the index is
+     *  saved, and stay dropped when it is read again. **/
+    public static void testMissingFilesDropped() {
+        File f = oldFile("one");
+        File g = new File(f.getParentFile(), "b.txt");
+        Utils.writeContents(g, "two");
+        File file = new File(f.getParentFile(), "index");
+        Index index = new Index(file);
+        index.hash(f.getPath());
+        index.hash(g.getPath());
+        index.save();
+        assertEquals("both", 2, new Index(file).size());
+        g.delete();
+        index.save();
+        assertEquals("dropped", 1, index.size());
+        Index read = new Index(file);
+        assertEquals("dropped on disk", 1, read.size());
+        assertEquals("kept", index.hash(f.getPath()),
+                read.cached(f.getPath()));
+    }
+
+    /** A file hashed once is answered from the cache, also after the
+     *  index is saved and read again, until its stat data changes. **/
+    public static void testCachedUntilChanged() {
+        File f = oldFile("one");
+        String name = f.getPath();
+        File file = new File(f.getParentFile(), "index");
+        Index index = new Index(file);
+        assertEquals("not cached yet", null, index.cached(name));
+        String hash = index.hash(name);
+        assertEquals("blob hash", ObjectStore.BLOB + Blob.hash(name, f),
+                hash);
+        assertEquals("cached", hash, index.cached(name));
+        index.save();
+        assertEquals("cached after reading", hash,
+                new Index(file).cached(name));
+        Utils.writeContents(f, "changed");
+        assertEquals("stale", null, index.cached(name));
+        assertEquals("rehashed", ObjectStore.BLOB + Blob.hash(name, f),
+                index.hash(name));
+    }
+
+    /** A file modified just now is hashed again next time, since a
+     *  change in the same clock tick would not show in its stat data. **/
+    public static void testRacyFileNotTrusted() {
+        File f = new File(UnitTest.tempDir(), "a.txt");
+        Utils.writeContents(f, "now");
+        Index index = new Index(new File(f.getParentFile(), "index"));
+        index.hash(f.getPath());
+        assertEquals("not trusted", null, index.cached(f.getPath()));
+    }
+
+}
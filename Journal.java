@@ -0,0 +1,242 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+
+/** The changes one command makes to a repo, made durable together.
+ * New files, such as objects, graph layers and packs, are written and
+ * renamed into place at once; nothing refers to them until the refs do.
+ * The files that say what the repo is (.gitlet/info, the staging area,
+ * the graph chain) are instead written to temporary files and only
+ * replaced on commit, and files the command made obsolete are only
+ * deleted then. Commit syncs every new and temporary file in one
+ * parallel batch, rather than one at a time as they are written, then
+ * writes and syncs .gitlet/journal, listing the replacements and
+ * deletions: once it exists, the command has happened. Only then are
+ * the files replaced and the journal removed. A crash before the journal
+ * exists leaves the repo as it was; a crash after leaves a journal that
+ * recover finishes the next time the repo is locked.
+ * @author Neel Dhoundiyal **/
+class Journal {
+
+    /** Tag of the encoded journal. **/
+    static final int TAG = 'J';
+
+    /** Format version of the encoded journal. **/
+    static final int VERSION = 1;
+
+    /** Name of the journal in .gitlet. **/
+    static final String FILE = "journal";
+
+    /** Prefix of the temporary files of journals, in .gitlet/tmp. **/
+    static final String PREFIX = "journal-";
+
+    /** A journal that does everything at once and syncs nothing, for
+     * stores and graphs used outside a repo. **/
+    static final Journal DIRECT = new Journal(null);
+
+    /** The .gitlet directory of the repo, or null for DIRECT. **/
+    private File _dir;
+
+    /** Marks the temporary files of this journal apart from those of
+     * any earlier one. **/
+    private String _token;
+
+    /** Number of temporary files made so far. **/
+    private int _temps;
+
+    /** New files to sync before the commit. **/
+    private ArrayList<File> _created;
+
+    /** Files to replace, each mapped to the temporary file holding its
+     * new contents. **/
+    private LinkedHashMap<File, File> _replaced;
+
+    /** Files to delete once the commit is done. **/
+    private LinkedHashSet<File> _deleted;
+
+    /** Journal for the repo whose .gitlet directory is DIR.
+     * @param dir : Reps the .gitlet directory, or null.**/
+    Journal(File dir) {
+        _dir = dir;
+        _created = new ArrayList<>();
+        _replaced = new LinkedHashMap<>();
+        _deleted = new LinkedHashSet<>();
+        _token = Long.toHexString(new Random().nextLong());
+    }
+
+    /** Records that the new file F was written and must be synced.
+     * @param f : File.**/
+    synchronized void created(File f) {
+        if (_dir != null) {
+            _created.add(f);
+        }
+    }
+
+    /** Arranges for the file TARGET to hold DATA once the journal commits.
+     * @param target : File.
+     * @param data : byte[].**/
+    synchronized void replace(File target, byte[] data) {
+        if (_dir == null) {
+            File tmp = new File(target.getPath() + ".tmp");
+            Utils.writeContents(tmp, data);
+            ObjectStore.rename(tmp, target);
+            return;
+        }
+        File tmp = _replaced.get(target);
+        if (tmp == null) {
+            tmp = Utils.join(_dir, "tmp", PREFIX + _token + "-" + _temps);
+            _temps += 1;
+            tmp.getParentFile().mkdirs();
+            _replaced.put(target, tmp);
+        }
+        Utils.writeContents(tmp, data);
+    }
+
+    /** Arranges for the file F to be deleted once the journal commits.
+     * @param f : File.**/
+    synchronized void delete(File f) {
+        if (_dir == null) {
+            f.delete();
+        } else {
+            _deleted.add(f);
+        }
+    }
+
+    /** Makes every change recorded so far durable and visible, as one,
+     * and starts afresh. **/
+    synchronized void commit() {
+        if (_dir == null
+                || _created.isEmpty() && _replaced.isEmpty()
+                && _deleted.isEmpty()) {
+            return;
+        }
+        ArrayList<File> files = new ArrayList<>(_created);
+        files.addAll(_replaced.values());
+        LinkedHashSet<File> dirs = new LinkedHashSet<>();
+        for (File f : files) {
+            File parent = f.getAbsoluteFile().getParentFile();
+            dirs.add(parent);
+            dirs.add(parent.getParentFile());
+        }
+        files.parallelStream().forEach(Journal::sync);
+        dirs.parallelStream().forEach(Journal::sync);
+        Encoder out = new Encoder(TAG, VERSION);
+        out.writeVarint(_replaced.size());
+        for (Map.Entry<File, File> e : _replaced.entrySet()) {
+            out.writeString(relative(e.getValue()));
+            out.writeString(relative(e.getKey()));
+        }
+        out.writeVarint(_deleted.size());
+        for (File f : _deleted) {
+            out.writeString(relative(f));
+        }
+        File journal = new File(_dir, FILE);
+        File tmp = new File(_dir, FILE + ".tmp");
+        Utils.writeContents(tmp, out.toByteArray());
+        sync(tmp);
+        ObjectStore.rename(tmp, journal);
+        sync(_dir);
+        apply(_dir, Utils.readContents(journal));
+        journal.delete();
+        _created.clear();
+        _replaced.clear();
+        _deleted.clear();
+    }
+
+    /** Drops every change not yet committed. New files stay, unused. **/
+    synchronized void abort() {
+        for (File tmp : _replaced.values()) {
+            tmp.delete();
+        }
+        _created.clear();
+        _replaced.clear();
+        _deleted.clear();
+    }
+
+    /** Returns true if the repo whose .gitlet directory is DIR has a
+     * committed journal that was not finished.
+     * @param dir : Reps the .gitlet directory.**/
+    static boolean pending(File dir) {
+        return new File(dir, FILE).exists();
+    }
+
+    /** Finishes the committed journal of the repo whose .gitlet directory
+     * is DIR, if any, and deletes the temporary files of journals that
+     * never committed. Called holding the repo's lock exclusively.
+     * @param dir : Reps the .gitlet directory.**/
+    static void recover(File dir) {
+        File journal = new File(dir, FILE);
+        if (journal.exists()) {
+            apply(dir, Utils.readContents(journal));
+            journal.delete();
+        }
+        new File(dir, FILE + ".tmp").delete();
+        File[] temps = new File(dir, "tmp").listFiles();
+        if (temps != null) {
+            for (File f : temps) {
+                if (f.getName().startsWith(PREFIX)) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    /** Carries out the encoded journal DATA of the repo whose .gitlet
+     * directory is DIR: moves each temporary file still there over the
+     * file it replaces, syncs their directories, then deletes the
+     * obsolete files. Doing it again changes nothing.
+     * @param dir : Reps the .gitlet directory.
+     * @param data : byte[].**/
+    private static void apply(File dir, byte[] data) {
+        Decoder in = new Decoder(data, TAG, VERSION);
+        LinkedHashSet<File> dirs = new LinkedHashSet<>();
+        int n = (int) in.readVarint();
+        for (int i = 0; i < n; i += 1) {
+            File tmp = new File(dir, in.readString());
+            File target = new File(dir, in.readString());
+            if (tmp.exists()) {
+                target.getParentFile().mkdirs();
+                ObjectStore.rename(tmp, target);
+            }
+            dirs.add(target.getParentFile());
+        }
+        for (File d : dirs) {
+            sync(d);
+        }
+        n = (int) in.readVarint();
+        for (int i = 0; i < n; i += 1) {
+            new File(dir, in.readString()).delete();
+        }
+    }
+
+    /** Returns the path of F relative to the .gitlet directory.
+     * @param f : File.**/
+    private String relative(File f) {
+        return _dir.getAbsoluteFile().toPath()
+                .relativize(f.getAbsoluteFile().toPath()).toString();
+    }
+
+    /** Forces the contents of the file or directory F to disk. Systems
+     * that cannot sync a directory are left to order its changes
+     * themselves.
+     * @param f : File.**/
+    static void sync(File f) {
+        try (FileChannel c = FileChannel.open(f.toPath(),
+                StandardOpenOption.READ)) {
+            c.force(true);
+        } catch (IOException excp) {
+            if (!f.isDirectory()) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
+}
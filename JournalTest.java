@@ -0,0 +1,83 @@
+package gitlet;
+
+import java.io.File;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.read;
+import static gitlet.UnitTest.write;
+
+/** Tests of Journal and the recovery RepoLock does.
+ *  @author Neel Dhoundiyal
+ */
+public class JournalTest {
+
+    /** Returns a new empty .gitlet directory. **/
+    static File gitletDir() {
+        File dir = new File(UnitTest.tempDir(), ".gitlet");
+        dir.mkdirs();
+        return dir;
+    }
+
+    /** Replacements and deletions only happen on commit, which leaves no
+     *  journal or temporary file behind. **/
+    public static void testCommit() {
+        File dir = gitletDir();
+        write(dir, "info", "old");
+        write(dir, "obsolete", "x");
+        Journal j = new Journal(dir);
+        j.replace(new File(dir, "info"), "new".getBytes());
+        j.delete(new File(dir, "obsolete"));
+        assertEquals("not replaced yet", "old", read(dir, "info"));
+        assertTrue("not deleted yet", new File(dir, "obsolete").exists());
+        j.commit();
+        assertEquals("replaced", "new", read(dir, "info"));
+        assertTrue("deleted", !new File(dir, "obsolete").exists());
+        assertTrue("no journal", !Journal.pending(dir));
+        assertEquals("no temporary files", 0,
+                new File(dir, "tmp").list().length);
+    }
+
+    /** An aborted journal changes nothing and drops its temporary
+     *  files. **/
+    public static void testAbort() {
+        File dir = gitletDir();
+        write(dir, "info", "old");
+        Journal j = new Journal(dir);
+        j.replace(new File(dir, "info"), "new".getBytes());
+        j.delete(new File(dir, "info"));
+        j.abort();
+        j.commit();
+        assertEquals("kept", "old", read(dir, "info"));
+        assertEquals("no temporary files", 0,
+                new File(dir, "tmp").list().length);
+    }
+
+    /** A journal committed by a command that crashed before carrying it
+     *  out is finished by the next lock on the repo, and the temporary
+     *  files of journals that never committed are deleted. **/
+    public static void testPendingJournalRecovered() {
+        File dir = gitletDir();
+        write(dir, "info", "old");
+        write(dir, "obsolete", "x");
+        write(dir, "tmp/" + Journal.PREFIX + "done-0", "new");
+        write(dir, "tmp/" + Journal.PREFIX + "lost-0", "never committed");
+        Encoder out = new Encoder(Journal.TAG, Journal.VERSION);
+        out.writeVarint(1);
+        out.writeString("tmp/" + Journal.PREFIX + "done-0");
+        out.writeString("info");
+        out.writeVarint(1);
+        out.writeString("obsolete");
+        Utils.writeContents(new File(dir, Journal.FILE), out.toByteArray());
+        assertTrue("pending", Journal.pending(dir));
+        new RepoLock(dir, true).close();
+        assertTrue("finished", !Journal.pending(dir));
+        assertEquals("replaced", "new", read(dir, "info"));
+        assertTrue("deleted", !new File(dir, "obsolete").exists());
+        assertEquals("no temporary files", 0,
+                new File(dir, "tmp").list().length);
+        Journal.recover(dir);
+        assertEquals("again changes nothing", "new", read(dir, "info"));
+    }
+
+}
@@ -0,0 +1,127 @@
+package gitlet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/** The options of log and global-log, choosing which commits to print:
+ * -n COUNT prints at most COUNT commits, --since=DATE and --until=DATE
+ * only those made in that span, --grep=TEXT only those whose message
+ * contains TEXT, and --all-parents (log only) follows both parents of
+ * merges rather than just the first. A DATE is yyyy-mm-dd, or
+ * yyyy-mm-ddThh:mm[:ss], in local time; a bare --until date takes in
+ * the whole day.
+ * @author Neel Dhoundiyal **/
+class LogFilter {
+
+    /** Most commits to print. **/
+    private int _limit = Integer.MAX_VALUE;
+
+    /** Earliest commit time to print, in seconds since the epoch. **/
+    private long _since = Long.MIN_VALUE;
+
+    /** Latest commit time to print, in seconds since the epoch. **/
+    private long _until = Long.MAX_VALUE;
+
+    /** Text the messages printed contain, or null for any. **/
+    private String _grep;
+
+    /** True if merges are followed to both parents. **/
+    private boolean _allParents;
+
+    /** The options in OPERANDS, which may include --all-parents only if
+     * ALLPARENTS.
+     * @param operands : Operands of the command.
+     * @param allParents : boolean.**/
+    LogFilter(List<String> operands, boolean allParents) {
+        for (int i = 0; i < operands.size(); i += 1) {
+            String op = operands.get(i);
+            if (op.equals("-n") && i + 1 < operands.size()) {
+                i += 1;
+                _limit = count(operands.get(i));
+            } else if (op.startsWith("--since=")) {
+                _since = time(value(op), false);
+            } else if (op.startsWith("--until=")) {
+                _until = time(value(op), true);
+            } else if (op.startsWith("--grep=")) {
+                _grep = value(op);
+            } else if (op.equals("--all-parents") && allParents) {
+                _allParents = true;
+            } else {
+                throw new GitletException("Incorrect operands.");
+            }
+        }
+    }
+
+    /** Returns the part of the option OP after its '='.
+     * @param op : String.**/
+    private static String value(String op) {
+        return op.substring(op.indexOf('=') + 1);
+    }
+
+    /** Returns the count S, which must be positive.
+     * @param s : String.**/
+    private static int count(String s) {
+        try {
+            int n = Integer.parseInt(s);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException excp) {
+            /* Falls through to the error below. */
+        }
+        throw new GitletException("Incorrect operands.");
+    }
+
+    /** Returns the date S in seconds since the epoch: its first second,
+     * or if END and S has no time of day, its last.
+     * @param s : String.
+     * @param end : boolean.**/
+    static long time(String s, boolean end) {
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            if (s.indexOf('T') < 0) {
+                LocalDate day = LocalDate.parse(s);
+                if (end) {
+                    day = day.plusDays(1);
+                }
+                return day.atStartOfDay(zone).toEpochSecond()
+                        - (end ? 1 : 0);
+            }
+            return LocalDateTime.parse(s).atZone(zone).toEpochSecond();
+        } catch (DateTimeParseException excp) {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Returns the most commits to print. **/
+    int limit() {
+        return _limit;
+    }
+
+    /** Returns true if merges are followed to both parents. **/
+    boolean allParents() {
+        return _allParents;
+    }
+
+    /** Returns true if a commit made at TIME may be printed.
+     * @param time : Seconds since the epoch.**/
+    boolean inSpan(long time) {
+        return time >= _since && time <= _until;
+    }
+
+    /** Returns true if no commit made at TIME or before is printed.
+     * @param time : Seconds since the epoch.**/
+    boolean before(long time) {
+        return time < _since;
+    }
+
+    /** Returns true if a commit with MESSAGE may be printed.
+     * @param message : String.**/
+    boolean matches(String message) {
+        return _grep == null || message.contains(_grep);
+    }
+
+}
@@ -0,0 +1,94 @@
+package gitlet;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertThrows;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.write;
+
+/** Tests of LogFilter and the options of log, global-log and find.
+ *  @author Neel Dhoundiyal
+ */
+public class LogFilterTest {
+
+    /** Returns the local time HOURS from now, as --since and --until
+     *  take it.
+     *  @param hours : long.*/
+    static String hoursFromNow(long hours) {
+        return LocalDateTime.now().plusHours(hours)
+                .truncatedTo(ChronoUnit.MINUTES)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /** Returns the filter OPERANDS give log.
+     *  @param operands : Options.*/
+    static LogFilter filter(String... operands) {
+        return new LogFilter(Arrays.asList(operands), true);
+    }
+
+    /** Returns the number of commits in the log OUT.
+     *  @param out : What log printed.*/
+    static int commits(String out) {
+        return out.split("===", -1).length - 1;
+    }
+
+    /** Options are read, and bad ones rejected. **/
+    public static void testOptions() {
+        LogFilter f = filter("-n", "2", "--grep=fix", "--all-parents");
+        assertEquals("limit", 2, f.limit());
+        assertTrue("all parents", f.allParents());
+        assertTrue("grep", f.matches("a fix") && !f.matches("feature"));
+        LogFilter day = filter("--since=2020-01-02", "--until=2020-01-02");
+        long start = LogFilter.time("2020-01-02", false);
+        assertTrue("whole day", day.inSpan(start)
+                && day.inSpan(start + 86399) && !day.inSpan(start + 86400)
+                && !day.inSpan(start - 1));
+        assertTrue("before", day.before(start - 1) && !day.before(start));
+        for (String[] bad : new String[][] {{"-n", "0"}, {"-n", "x"},
+                {"--since=yesterday"}, {"--bogus"}}) {
+            assertThrows(String.join(" ", bad), GitletException.class,
+                    () -> filter(bad));
+        }
+        assertThrows("--all-parents", GitletException.class,
+                () -> new LogFilter(Arrays.asList("--all-parents"), false));
+    }
+
+    /** --since and --until compare commit times in the local zone, and
+     *  -n and --grep choose among the commits, for log, global-log and
+     *  find alike. **/
+    public static void testLogAndFindSpans() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        for (int i = 0; i < 3; i += 1) {
+            write(dir, "a.txt", "v" + i);
+            gitlet(dir, "add", "a.txt");
+            gitlet(dir, "commit", i == 1 ? "fix one" : "change " + i);
+        }
+        String hourAgo = "--since=" + hoursFromNow(-1);
+        String inHour = "--until=" + hoursFromNow(1);
+        assertEquals("all", 4, commits(gitlet(dir, "log")));
+        assertEquals("since an hour ago", 3,
+                commits(gitlet(dir, "log", hourAgo)));
+        assertEquals("until in an hour", 4,
+                commits(gitlet(dir, "log", inHour)));
+        assertEquals("since in an hour", 0, commits(gitlet(dir,
+                "global-log", "--since=" + hoursFromNow(1))));
+        assertEquals("until an hour ago", 1, commits(gitlet(dir,
+                "global-log", "--until=" + hoursFromNow(-1))));
+        assertEquals("-n", 2, commits(gitlet(dir, "log", "-n", "2")));
+        assertEquals("grep", 1,
+                commits(gitlet(dir, "log", "--grep=fix", hourAgo)));
+        assertEquals("find since", 3, gitlet(dir, "find",
+                "--contains=e", hourAgo, inHour).split("\n").length);
+        assertEquals("find until", "Found no commit with that message.\n",
+                gitlet(dir, "find", "--contains=change",
+                        "--until=" + hoursFromNow(-1)));
+    }
+
+}
@@ -1,8 +1,8 @@
 package gitlet;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.io.File;
 import java.util.Arrays;
 
 /** Gitlet Main.
@@ -12,18 +12,56 @@ import java.util.Arrays;
 public class Main {
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  <COMMAND> <OPERAND> .... Commands are handed to the repo's daemon
+     *  when one is serving it, and run here otherwise, holding the
+     *  repo's lock: shared for read-only commands, exclusive for the
+     *  rest. Read-only commands do not write .gitlet/info back, and
+     *  the others write it, with the rest of the repo's state, through
+     *  a journal. A read-only command on a repo older than its commit
+     *  graph or message index takes the lock exclusively instead, just
+     *  this once, to fill them in and keep them. */
     public static void main(String... args) throws IOException {
         if (args.length == 0 || args == null) {
             System.out.println("Please enter a command.");
             System.exit(0);
         }
+        if (args[0].equals("serve")) {
+            Daemon.serve(Arrays.asList(args).subList(1, args.length));
+            return;
+        }
+        if (Daemon.forward(args)) {
+            return;
+        }
         ArrayList<String> commands = new ArrayList<String>();
         commands.addAll(Arrays.asList(args));
-        Gitlet g = new Gitlet();
-        g.run(commands);
-        Utils.writeContents(new File(".gitlet/info"),
-                Utils.serialize(g));
+        File dir = new File(System.getProperty("user.dir"), ".gitlet");
+        boolean readOnly = Gitlet.READ_ONLY.contains(args[0]);
+        RepoLock lock = dir.exists() ? new RepoLock(dir, readOnly) : null;
+        try {
+            Gitlet g = new Gitlet();
+            if (readOnly && lock != null && !g.readsPrepared()) {
+                lock.close();
+                lock = new RepoLock(dir, false);
+                g = new Gitlet();
+                g.prepareReads();
+            }
+            try {
+                g.run(commands);
+            } catch (GitletException excp) {
+                System.out.println(excp.getMessage());
+                g.discard();
+                return;
+            }
+            if (readOnly) {
+                g.discard();
+            } else {
+                g.save();
+            }
+        } finally {
+            if (lock != null) {
+                lock.close();
+            }
+        }
     }
 
 }
@@ -0,0 +1,186 @@
+package gitlet;
+
+import java.io.File;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.read;
+import static gitlet.UnitTest.write;
+
+/** Tests of merge: finding the split point and merging the files.
+ *  @author Neel Dhoundiyal
+ */
+public class MergeTest {
+
+    /** Writes TEXT to NAME in the repo in DIR and commits it with
+     *  MESSAGE, returning what commit printed.
+     *  @param dir : Working directory of the repo.
+     *  @param name : String.
+     *  @param text : String.
+     *  @param message : String.*/
+    static String commit(File dir, String name, String text,
+                         String message) {
+        write(dir, name, text);
+        gitlet(dir, "add", name);
+        return gitlet(dir, "commit", message);
+    }
+
+    /** Returns a repo in a new directory holding a.txt and b.txt on
+     *  master, with the branch other made at that commit. **/
+    static File twoBranches() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        write(dir, "a.txt", "a");
+        gitlet(dir, "add", "a.txt");
+        commit(dir, "b.txt", "b", "base");
+        gitlet(dir, "branch", "other");
+        return dir;
+    }
+
+    /** After a criss-cross merge, the two heads have two latest common
+     *  ancestors, and the more recent of them is the split point: here
+     *  the merge is clean from master 1 but would conflict on a.txt from
+     *  other 1. **/
+    public static void testCrissCross() throws InterruptedException {
+        File dir = twoBranches();
+        gitlet(dir, "checkout", "other");
+        commit(dir, "b.txt", "b1", "other 1");
+        gitlet(dir, "branch", "x1");
+        gitlet(dir, "checkout", "master");
+        Thread.sleep(1100);
+        commit(dir, "a.txt", "a1", "master 1");
+        gitlet(dir, "branch", "m1");
+        gitlet(dir, "checkout", "other");
+        assertEquals("other merges m1", "", gitlet(dir, "merge", "m1"));
+        gitlet(dir, "checkout", "master");
+        assertEquals("master merges x1", "", gitlet(dir, "merge", "x1"));
+        commit(dir, "a.txt", "a2", "master 2");
+        gitlet(dir, "checkout", "other");
+        commit(dir, "c.txt", "c", "other 2");
+        gitlet(dir, "checkout", "master");
+        assertEquals("clean merge", "", gitlet(dir, "merge", "other"));
+        assertEquals("a.txt", "a2", read(dir, "a.txt"));
+        assertEquals("b.txt", "b1", read(dir, "b.txt"));
+        assertEquals("c.txt", "c", read(dir, "c.txt"));
+    }
+
+    /** Every way the two branches can add, delete or modify a file is
+     *  merged: a change on one side is taken, the same change on both is
+     *  kept, and different changes to the same lines conflict. **/
+    public static void testThreeWayCases() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        String[] names = {"same", "modG", "modC", "delG", "delC", "delBoth",
+                          "both", "bothSame", "delMod", "lines"};
+        for (String n : names) {
+            write(dir, n + ".txt", n + " 1\n" + n + " 2\n" + n + " 3\n");
+            gitlet(dir, "add", n + ".txt");
+        }
+        gitlet(dir, "commit", "base");
+        gitlet(dir, "branch", "other");
+        write(dir, "modC.txt", "modC x\n");
+        write(dir, "both.txt", "both C\n");
+        write(dir, "bothSame.txt", "same!\n");
+        write(dir, "lines.txt", "lines X\nlines 2\nlines 3\n");
+        write(dir, "addBoth.txt", "addBoth C\n");
+        gitlet(dir, "add", "modC.txt", "both.txt", "bothSame.txt",
+                "lines.txt", "addBoth.txt");
+        gitlet(dir, "rm", "delC.txt");
+        gitlet(dir, "rm", "delBoth.txt");
+        gitlet(dir, "rm", "delMod.txt");
+        gitlet(dir, "commit", "current");
+        gitlet(dir, "checkout", "other");
+        write(dir, "modG.txt", "modG x\n");
+        write(dir, "both.txt", "both G\n");
+        write(dir, "bothSame.txt", "same!\n");
+        write(dir, "delMod.txt", "delMod G\n");
+        write(dir, "lines.txt", "lines 1\nlines 2\nlines Y\n");
+        write(dir, "addBoth.txt", "addBoth G\n");
+        write(dir, "addG.txt", "addG\n");
+        gitlet(dir, "add", "modG.txt", "both.txt", "bothSame.txt",
+                "delMod.txt", "lines.txt", "addBoth.txt", "addG.txt");
+        gitlet(dir, "rm", "delG.txt");
+        gitlet(dir, "rm", "delBoth.txt");
+        gitlet(dir, "commit", "given");
+        gitlet(dir, "checkout", "master");
+        assertEquals("conflict reported", "Encountered a merge conflict.\n",
+                gitlet(dir, "merge", "other"));
+        assertEquals("same", "same 1\nsame 2\nsame 3\n",
+                read(dir, "same.txt"));
+        assertEquals("modified in given", "modG x\n", read(dir, "modG.txt"));
+        assertEquals("modified in current", "modC x\n",
+                read(dir, "modC.txt"));
+        assertTrue("deleted in given", !new File(dir, "delG.txt").exists());
+        assertTrue("deleted in current",
+                !new File(dir, "delC.txt").exists());
+        assertTrue("deleted in both",
+                !new File(dir, "delBoth.txt").exists());
+        assertEquals("added in given", "addG\n", read(dir, "addG.txt"));
+        assertEquals("same change", "same!\n", read(dir, "bothSame.txt"));
+        assertEquals("different lines", "lines X\nlines 2\nlines Y\n",
+                read(dir, "lines.txt"));
+        assertEquals("both modified", "<<<<<<< HEAD\nboth C\n=======\n"
+                + "both G\n>>>>>>>\n", read(dir, "both.txt"));
+        assertEquals("both added", "<<<<<<< HEAD\naddBoth C\n=======\n"
+                + "addBoth G\n>>>>>>>\n", read(dir, "addBoth.txt"));
+        assertEquals("deleted and modified", "<<<<<<< HEAD\n=======\n"
+                + "delMod G\n>>>>>>>\n", read(dir, "delMod.txt"));
+        assertEquals("committed", "", GitletTest.section(dir,
+                "Staged Files"));
+        assertTrue("merge commit", gitlet(dir, "log", "-n", "1")
+                .contains("Merged other into master."));
+    }
+
+    /** The ancestor and fast-forward cases are found. **/
+    public static void testAncestorAndFastForward() {
+        File dir = twoBranches();
+        commit(dir, "a.txt", "a1", "master 1");
+        assertEquals("ancestor",
+                "Given branch is an ancestor of the current branch.\n",
+                gitlet(dir, "merge", "other"));
+        gitlet(dir, "checkout", "other");
+        assertEquals("fast-forward", "Current branch fast-forwarded.\n",
+                gitlet(dir, "merge", "master"));
+        assertEquals("a.txt", "a1", read(dir, "a.txt"));
+    }
+
+    /** A branch whose history shares no commit with the current one is
+     *  refused, and nothing changes. **/
+    public static void testNoCommonAncestor() {
+        File dir = twoBranches();
+        Commit orphan = new Commit("orphan", null, "other", Tree.EMPTY);
+        new ObjectStore(new File(dir, ".gitlet/objects"))
+                .put(orphan.getHashCodeCommit(), orphan.encode());
+        gitlet(dir, "checkout", "other");
+        gitlet(dir, "reset", orphan.getHashCodeCommit());
+        commit(dir, "c.txt", "c", "other 1");
+        gitlet(dir, "checkout", "master");
+        String log = gitlet(dir, "log");
+        assertEquals("refused", "The branches have no common ancestor.\n",
+                gitlet(dir, "merge", "other"));
+        assertEquals("unchanged", log, gitlet(dir, "log"));
+        assertTrue("no c.txt", !new File(dir, "c.txt").exists());
+    }
+
+    /** A repo whose commit graph is filled in by the merge itself, as
+     *  for one made before the graph existed, merges as it would with
+     *  the graph in place. Adding the given branch's commits merges them
+     *  into the layer holding the current head and renumbers it. **/
+    public static void testMergeFillingInGraph() {
+        File dir = twoBranches();
+        commit(dir, "a.txt", "a1", "master 1");
+        gitlet(dir, "checkout", "other");
+        for (int i = 0; i < 6; i += 1) {
+            commit(dir, "b.txt", "b" + i, "other " + i);
+        }
+        gitlet(dir, "checkout", "master");
+        UnitTest.deleteAll(new File(dir, ".gitlet/graph"));
+        assertEquals("clean merge", "", gitlet(dir, "merge", "other"));
+        assertEquals("a.txt", "a1", read(dir, "a.txt"));
+        assertEquals("b.txt", "b5", read(dir, "b.txt"));
+        assertTrue("merged", gitlet(dir, "log").contains(
+                "Merged other into master."));
+    }
+
+}
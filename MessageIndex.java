@@ -0,0 +1,384 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/** The message index: every commit's hash code, time and log message,
+ * with an inverted index from each word of the messages to the commits
+ * using it, so that find answers queries without reading any Commit.
+ * Words are runs of letters and digits, lower-cased. It is kept in
+ * .gitlet/messages as a chain of segments, layered like the commit
+ * graph: each commit adds a small segment on top, and a segment is
+ * merged into the one below once it is at least half that size. A
+ * query narrows each segment to the commits having its rarest word,
+ * then checks just those messages.
+ * @author Neel Dhoundiyal **/
+class MessageIndex {
+
+    /** Tag of an encoded segment. **/
+    static final int TAG = 'M';
+
+    /** Format version of an encoded segment. **/
+    static final int VERSION = 1;
+
+    /** A segment is merged into the one below once it is at least the
+     * size of that segment divided by this. **/
+    private static final int MERGE_FACTOR = 2;
+
+    /** One segment file. **/
+    private static class Segment {
+        /** The segment file. **/
+        private File _file;
+        /** Number of commits in the segment. **/
+        private int _count;
+        /** Hash codes of the commits, or null until the file is read. **/
+        private String[] _ids;
+        /** Commit times, in seconds since the epoch. **/
+        private long[] _times;
+        /** Log messages. **/
+        private String[] _messages;
+        /** Indexes of the commits using each word, ascending. **/
+        private HashMap<String, int[]> _postings;
+    }
+
+    /** A query: the conditions a commit must all meet to be found. **/
+    static class Query {
+        /** The whole message, or null for any. **/
+        private String _message;
+        /** Words the message has. **/
+        private List<String> _words = new ArrayList<>();
+        /** Text the message contains, or null for any. **/
+        private String _contains;
+        /** Pattern found in the message, or null for any. **/
+        private Pattern _regex;
+        /** Earliest commit time, in seconds since the epoch. **/
+        private long _since = Long.MIN_VALUE;
+        /** Latest commit time, in seconds since the epoch. **/
+        private long _until = Long.MAX_VALUE;
+
+        /** The query given by the operands of find: a bare operand is the
+         * whole message, --word=WORDS the words it has, --contains=TEXT
+         * text it contains, --regex=PATTERN a pattern found in it, and
+         * --since=DATE and --until=DATE the span of commit times, as for
+         * log.
+         * @param operands : Operands of find.**/
+        Query(List<String> operands) {
+            if (operands.isEmpty()) {
+                throw new GitletException("Incorrect operands.");
+            }
+            for (String op : operands) {
+                String value = op.substring(op.indexOf('=') + 1);
+                if (!op.startsWith("--") && _message == null) {
+                    _message = op;
+                } else if (op.startsWith("--word=")) {
+                    _words.addAll(words(value));
+                } else if (op.startsWith("--contains=")) {
+                    _contains = value;
+                } else if (op.startsWith("--regex=")) {
+                    try {
+                        _regex = Pattern.compile(value);
+                    } catch (IllegalArgumentException excp) {
+                        throw new GitletException("Incorrect operands.");
+                    }
+                } else if (op.startsWith("--since=")) {
+                    _since = LogFilter.time(value, false);
+                } else if (op.startsWith("--until=")) {
+                    _until = LogFilter.time(value, true);
+                } else {
+                    throw new GitletException("Incorrect operands.");
+                }
+            }
+        }
+
+        /** Returns the words every message found must have. **/
+        private LinkedHashSet<String> required() {
+            LinkedHashSet<String> result = new LinkedHashSet<>(_words);
+            if (_message != null) {
+                result.addAll(words(_message));
+            }
+            if (_contains != null) {
+                result.addAll(inner(_contains));
+            }
+            return result;
+        }
+
+        /** Returns true if a commit made at TIME with MESSAGE meets
+         * every condition.
+         * @param time : Seconds since the epoch.
+         * @param message : String.**/
+        private boolean matches(long time, String message) {
+            return time >= _since && time <= _until
+                    && (_message == null || _message.equals(message))
+                    && (_contains == null || message.contains(_contains))
+                    && (_regex == null || _regex.matcher(message).find())
+                    && (_words.isEmpty()
+                        || words(message).containsAll(_words));
+        }
+    }
+
+    /** Directory holding the segments. **/
+    private File _dir;
+
+    /** The segments, bottom first. **/
+    private ArrayList<Segment> _segments;
+
+    /** Journal of the command writing to this index. **/
+    private Journal _journal;
+
+    /** True if the index was ever written. **/
+    private boolean _built;
+
+    /** Opens the message index kept in DIR, which is empty if DIR does
+     * not exist yet. Segments are only read when first queried or
+     * merged. New segments are synced, and the chain replaced, when
+     * JOURNAL commits.
+     * @param dir : Reps the directory of the index.
+     * @param journal : Reps the journal of the current command.**/
+    MessageIndex(File dir, Journal journal) {
+        _dir = dir;
+        _journal = journal;
+        _segments = new ArrayList<>();
+        File chain = chainFile();
+        _built = chain.exists();
+        if (!_built) {
+            return;
+        }
+        for (String line : Utils.readContentsAsString(chain).split("\n")) {
+            if (!line.isEmpty()) {
+                String[] parts = line.split(" ");
+                Segment s = new Segment();
+                s._file = Utils.join(dir, parts[0]);
+                s._count = Integer.parseInt(parts[1]);
+                _segments.add(s);
+            }
+        }
+    }
+
+    /** Returns the file listing the segments, bottom first, each with
+     * its number of commits. **/
+    private File chainFile() {
+        return Utils.join(_dir, "chain");
+    }
+
+    /** Returns true if the index was ever written, so that it holds
+     * every commit made since. Repos older than the index have none. **/
+    boolean built() {
+        return _built;
+    }
+
+    /** Returns the words of S, in order.
+     * @param s : String.**/
+    static List<String> words(String s) {
+        ArrayList<String> result = new ArrayList<>();
+        String lower = s.toLowerCase(Locale.ROOT);
+        for (String w : lower.split("[^\\p{L}\\p{N}]+")) {
+            if (!w.isEmpty()) {
+                result.add(w);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the words of TEXT that are whole words of any message
+     * containing it: all but a word touching either end of TEXT, which
+     * may be part of a longer one.
+     * @param text : String.**/
+    private static List<String> inner(String text) {
+        String s = text.toLowerCase(Locale.ROOT);
+        int start = 0;
+        while (start < s.length()
+                && Character.isLetterOrDigit(s.charAt(start))) {
+            start += 1;
+        }
+        int end = s.length();
+        while (end > start
+                && Character.isLetterOrDigit(s.charAt(end - 1))) {
+            end -= 1;
+        }
+        return words(s.substring(start, end));
+    }
+
+    /** Adds COMMITS to the index.
+     * @param commits : Commits not yet in the index.**/
+    void add(List<Commit> commits) {
+        _built = true;
+        int n = commits.size();
+        String[] ids = new String[n];
+        long[] times = new long[n];
+        String[] messages = new String[n];
+        for (int i = 0; i < n; i += 1) {
+            Commit c = commits.get(i);
+            ids[i] = c.getHashCodeCommit();
+            times[i] = c.getTime();
+            messages[i] = c.getLogMessage();
+        }
+        _segments.add(write(ids, times, messages));
+        ArrayList<File> old = new ArrayList<>();
+        while (_segments.size() > 1
+                && _segments.get(_segments.size() - 1)._count * MERGE_FACTOR
+                >= _segments.get(_segments.size() - 2)._count) {
+            old.add(_segments.get(_segments.size() - 1)._file);
+            old.add(_segments.get(_segments.size() - 2)._file);
+            mergeTop();
+        }
+        StringBuilder chain = new StringBuilder();
+        for (Segment s : _segments) {
+            chain.append(s._file.getName()).append(' ').append(s._count)
+                    .append('\n');
+        }
+        _journal.replace(chainFile(),
+                chain.toString().getBytes(StandardCharsets.US_ASCII));
+        for (File f : old) {
+            _journal.delete(f);
+        }
+    }
+
+    /** Merges the top two segments into one. **/
+    private void mergeTop() {
+        Segment upper = load(_segments.remove(_segments.size() - 1));
+        Segment lower = load(_segments.remove(_segments.size() - 1));
+        int n = lower._count + upper._count;
+        String[] ids = Arrays.copyOf(lower._ids, n);
+        long[] times = Arrays.copyOf(lower._times, n);
+        String[] messages = Arrays.copyOf(lower._messages, n);
+        System.arraycopy(upper._ids, 0, ids, lower._count, upper._count);
+        System.arraycopy(upper._times, 0, times, lower._count,
+                upper._count);
+        System.arraycopy(upper._messages, 0, messages, lower._count,
+                upper._count);
+        _segments.add(write(ids, times, messages));
+    }
+
+    /** Writes a segment of the commits IDS, made at TIMES with MESSAGES,
+     * and returns it.
+     * @param ids : Hash codes.
+     * @param times : Commit times.
+     * @param messages : Log messages.**/
+    private Segment write(String[] ids, long[] times, String[] messages) {
+        TreeMap<String, ArrayList<Integer>> postings = new TreeMap<>();
+        for (int i = 0; i < ids.length; i += 1) {
+            for (String w : new LinkedHashSet<>(words(messages[i]))) {
+                postings.computeIfAbsent(w, k -> new ArrayList<>()).add(i);
+            }
+        }
+        Encoder out = new Encoder(TAG, VERSION);
+        out.writeVarint(ids.length);
+        for (int i = 0; i < ids.length; i += 1) {
+            out.writeHash(ids[i]);
+            out.writeVarint(times[i]);
+            out.writeString(messages[i]);
+        }
+        out.writeVarint(postings.size());
+        for (Map.Entry<String, ArrayList<Integer>> e : postings.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeVarint(e.getValue().size());
+            int last = 0;
+            for (int i : e.getValue()) {
+                out.writeVarint(i - last);
+                last = i;
+            }
+        }
+        byte[] data = out.toByteArray();
+        _dir.mkdirs();
+        String name = "messages-" + Utils.sha1(data) + ".idx";
+        File tmp = ObjectStore.tempFile(_dir, name);
+        Utils.writeContents(tmp, data);
+        File file = Utils.join(_dir, name);
+        ObjectStore.rename(tmp, file);
+        _journal.created(file);
+        Segment s = new Segment();
+        s._file = file;
+        s._count = ids.length;
+        return load(s);
+    }
+
+    /** Reads the segment S from its file, if not read yet, and returns it.
+     * @param s : Segment.**/
+    private static Segment load(Segment s) {
+        synchronized (s) {
+            if (s._ids != null) {
+                return s;
+            }
+            Decoder in = new Decoder(Utils.readContents(s._file), TAG,
+                    VERSION);
+            int n = (int) in.readVarint();
+            String[] ids = new String[n];
+            long[] times = new long[n];
+            String[] messages = new String[n];
+            for (int i = 0; i < n; i += 1) {
+                ids[i] = in.readHash(ObjectStore.COMMIT);
+                times[i] = in.readVarint();
+                messages[i] = in.readString();
+            }
+            int words = (int) in.readVarint();
+            HashMap<String, int[]> postings = new HashMap<>();
+            for (int w = 0; w < words; w += 1) {
+                String word = in.readString();
+                int[] list = new int[(int) in.readVarint()];
+                int last = 0;
+                for (int i = 0; i < list.length; i += 1) {
+                    last += (int) in.readVarint();
+                    list[i] = last;
+                }
+                postings.put(word, list);
+            }
+            s._times = times;
+            s._messages = messages;
+            s._postings = postings;
+            s._ids = ids;
+            return s;
+        }
+    }
+
+    /** Returns the hash codes of the commits meeting every condition of
+     * QUERY, newest first.
+     * @param query : Query.**/
+    List<String> find(Query query) {
+        LinkedHashSet<String> words = query.required();
+        ArrayList<String> ids = new ArrayList<>();
+        ArrayList<Long> times = new ArrayList<>();
+        for (Segment s : _segments) {
+            load(s);
+            int[] candidates = null;
+            for (String w : words) {
+                int[] list = s._postings.get(w);
+                if (list == null) {
+                    candidates = new int[0];
+                    break;
+                }
+                if (candidates == null || list.length < candidates.length) {
+                    candidates = list;
+                }
+            }
+            int n = candidates == null ? s._count : candidates.length;
+            for (int k = 0; k < n; k += 1) {
+                int i = candidates == null ? k : candidates[k];
+                if (query.matches(s._times[i], s._messages[i])) {
+                    ids.add(s._ids[i]);
+                    times.add(s._times[i]);
+                }
+            }
+        }
+        Integer[] order = new Integer[ids.size()];
+        for (int i = 0; i < order.length; i += 1) {
+            order[i] = order.length - 1 - i;
+        }
+        Arrays.sort(order, (x, y) -> Long.compare(times.get(y),
+                times.get(x)));
+        ArrayList<String> result = new ArrayList<>();
+        for (int i : order) {
+            result.add(ids.get(i));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,143 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertThrows;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.write;
+
+/** Tests of MessageIndex and find.
+ *  @author Neel Dhoundiyal
+ */
+public class MessageIndexTest {
+
+    /** Returns commits with MESSAGES, each the child of the one before.
+     *  @param messages : Log messages.*/
+    static List<Commit> commits(String... messages) {
+        ArrayList<Commit> result = new ArrayList<>();
+        Commit c = new Commit();
+        for (String m : messages) {
+            c = new Commit(m, c.getHashCodeCommit(), "master", Tree.EMPTY);
+            result.add(c);
+        }
+        return result;
+    }
+
+    /** Returns the hash codes of COMMITS numbered I.
+     *  @param commits : Commits.
+     *  @param i : Indexes into COMMITS.*/
+    static List<String> ids(List<Commit> commits, int... i) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int k : i) {
+            result.add(commits.get(k).getHashCodeCommit());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Returns the hash codes of the commits in INDEX meeting OPERANDS,
+     *  in hash code order.
+     *  @param index : MessageIndex.
+     *  @param operands : Operands of find.*/
+    static List<String> find(MessageIndex index, String... operands) {
+        List<String> result = new ArrayList<>(index.find(
+                new MessageIndex.Query(Arrays.asList(operands))));
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Words are runs of letters and digits, lower-cased. **/
+    public static void testWords() {
+        assertEquals("words", Arrays.asList("fix", "the", "bug", "42"),
+                MessageIndex.words("Fix: the BUG-42!"));
+        assertEquals("letters", Arrays.asList("caf\u00e9"),
+                MessageIndex.words("Caf\u00c9"));
+    }
+
+    /** Each kind of query finds exactly the commits it describes. **/
+    public static void testQueries() {
+        MessageIndex index = new MessageIndex(
+                new File(UnitTest.tempDir(), "messages"), Journal.DIRECT);
+        assertTrue("not built", !index.built());
+        List<Commit> c = commits("Fix the parser", "fix parser tests",
+                "Add parser", "refactor: parse trees");
+        index.add(c);
+        assertTrue("built", index.built());
+        assertEquals("exact", ids(c, 2), find(index, "Add parser"));
+        assertEquals("exact is whole", ids(c), find(index, "Add"));
+        assertEquals("words", ids(c, 0, 1),
+                find(index, "--word=PARSER fix"));
+        assertEquals("contains", ids(c, 0, 1, 2, 3),
+                find(index, "--contains=pars"));
+        assertEquals("contains across words", ids(c, 1),
+                find(index, "--contains=x parser t"));
+        assertEquals("contains is case sensitive", ids(c, 0),
+                find(index, "--contains=Fix"));
+        assertEquals("regex", ids(c, 3),
+                find(index, "--regex=^[a-z]+: "));
+        assertEquals("together", ids(c, 1),
+                find(index, "--word=fix", "--regex=tests$"));
+        assertEquals("none", ids(c), find(index, "--word=nothing"));
+        assertThrows("bad regex", GitletException.class,
+                () -> find(index, "--regex=("));
+        assertThrows("bad option", GitletException.class,
+                () -> find(index, "--bogus=1"));
+    }
+
+    /** Commits added one at a time, their segments merged as they grow,
+     *  are all found, newest first, once the index is opened again. **/
+    public static void testSegmentsMerged() {
+        File dir = new File(UnitTest.tempDir(), "messages");
+        MessageIndex index = new MessageIndex(dir, Journal.DIRECT);
+        String[] messages = new String[40];
+        for (int i = 0; i < messages.length; i += 1) {
+            messages[i] = "change " + i;
+        }
+        List<Commit> c = commits(messages);
+        for (Commit one : c) {
+            index.add(Collections.singletonList(one));
+        }
+        index = new MessageIndex(dir, Journal.DIRECT);
+        List<String> all = index.find(new MessageIndex.Query(
+                Arrays.asList("--word=change")));
+        assertEquals("all", c.size(), all.size());
+        assertEquals("newest first", c.get(c.size() - 1)
+                .getHashCodeCommit(), all.get(0));
+        assertEquals("one", ids(c, 17), find(index, "change 17"));
+        assertTrue("fewer segments than commits",
+                dir.list().length < c.size());
+    }
+
+    /** A repo whose message index is missing has it filled in from its
+     *  commits, and kept, by the first find, which answers as before. **/
+    public static void testBackfill() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        for (int i = 0; i < 3; i += 1) {
+            write(dir, "a.txt", "v" + i);
+            gitlet(dir, "add", "a.txt");
+            gitlet(dir, "commit", "change " + i);
+        }
+        String found = gitlet(dir, "find", "--word=change");
+        UnitTest.deleteAll(new File(dir, ".gitlet/messages"));
+        assertEquals("read-only", found, gitlet(dir, "find", "--word=change"));
+        assertTrue("kept", new File(dir, ".gitlet/messages/chain")
+                .exists());
+        write(dir, "a.txt", "v3");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "change 3");
+        assertTrue("written", new File(dir, ".gitlet/messages/chain")
+                .exists());
+        assertEquals("four", 4, gitlet(dir, "find", "--word=change")
+                .split("\n").length);
+        assertEquals("initial", 1, gitlet(dir, "find", "initial commit")
+                .split("\n").length);
+    }
+
+}
@@ -0,0 +1,406 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/** A content-addressed store of the objects in a Gitlet repo. Every
+ * object is written once under .gitlet/objects, keyed by its hash code,
+ * and only read back when a command actually needs it. Objects pass
+ * through the repo's Codec on the way in and out.
+ * @author Neel Dhoundiyal **/
+class ObjectStore {
+
+    /** Hash code prefix of commit objects. **/
+    static final String COMMIT = "c";
+
+    /** Hash code prefix of blob objects. **/
+    static final String BLOB = "b";
+
+    /** Hash code prefix of tree objects. **/
+    static final String TREE = "t";
+
+    /** Number of hash characters used to name the fan-out directory. **/
+    private static final int FANOUT = 2;
+
+    /** Size of the buffer used to stream objects in and out. **/
+    private static final int BUFFER = 1 << 16;
+
+    /** Directory holding all the loose objects. **/
+    private File _dir;
+
+    /** Codec every loose object of this store is written with. **/
+    private Codec _codec;
+
+    /** Packs holding the objects that are not loose. **/
+    private ArrayList<Pack> _packs;
+
+    /** Journal of the command writing to this store. **/
+    private Journal _journal;
+
+    /** Object store constructor, for a store written outside any command.
+     * @param dir : Reps the objects directory of the repo.**/
+    ObjectStore(File dir) {
+        this(dir, Journal.DIRECT);
+    }
+
+    /** Object store constructor. The codec is the one recorded in the
+     * repo's codec file; repos made before codecs existed store their
+     * objects as they are. New objects are synced, and obsolete ones
+     * deleted, when JOURNAL commits.
+     * @param dir : Reps the objects directory of the repo.
+     * @param journal : Reps the journal of the current command.**/
+    ObjectStore(File dir, Journal journal) {
+        _dir = dir;
+        _journal = journal;
+        File config = codecFile(dir);
+        if (config.exists()) {
+            _codec = Codec.forName(Utils.readContentsAsString(config));
+        } else {
+            _codec = Codec.IDENTITY;
+        }
+        _packs = new ArrayList<>();
+        File[] packs = packDir().listFiles();
+        if (packs != null) {
+            for (File f : packs) {
+                if (f.getName().endsWith(".idx")) {
+                    _packs.add(new Pack(f));
+                }
+            }
+        }
+    }
+
+    /** Creates an empty object store in DIR whose objects are all
+     * written with CODEC.
+     * @param dir : Reps the objects directory of the repo.
+     * @param codec : Reps the codec of the repo.
+     * @return ObjectStore**/
+    static ObjectStore create(File dir, Codec codec) {
+        return create(dir, codec, Journal.DIRECT);
+    }
+
+    /** Creates an empty object store in DIR whose objects are all
+     * written with CODEC, synced when JOURNAL commits.
+     * @param dir : Reps the objects directory of the repo.
+     * @param codec : Reps the codec of the repo.
+     * @param journal : Reps the journal of the current command.
+     * @return ObjectStore**/
+    static ObjectStore create(File dir, Codec codec, Journal journal) {
+        dir.mkdirs();
+        Utils.writeContents(codecFile(dir), codec.name());
+        journal.created(codecFile(dir));
+        return new ObjectStore(dir, journal);
+    }
+
+    /** Returns the file recording the codec of the objects in DIR.
+     * @param dir : Reps the objects directory of the repo.**/
+    private static File codecFile(File dir) {
+        return Utils.join(dir.getParentFile(), "codec");
+    }
+
+    /** Returns the directory holding the packs. **/
+    private File packDir() {
+        return Utils.join(_dir.getParentFile(), "pack");
+    }
+
+    /** Returns the pack holding the object ID, or null if it is loose or
+     * missing.
+     * @param id : String id.**/
+    private Pack packOf(String id) {
+        for (Pack p : _packs) {
+            if (p.contains(id)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the codec of this store. **/
+    Codec codec() {
+        return _codec;
+    }
+
+    /** Returns the file holding the object with hash code ID.
+     * @param id : String id.**/
+    private File path(String id) {
+        return Utils.join(_dir, id.substring(1, 1 + FANOUT), id);
+    }
+
+    /** Returns true if the object with hash code ID is in the store.
+     * @param id : String id.**/
+    boolean contains(String id) {
+        return id != null && id.length() > FANOUT
+                && (path(id).exists() || packOf(id) != null);
+    }
+
+    /** Writes the encoded object DATA under hash code ID unless it is
+     * already stored.
+     * @param id : String id.
+     * @param data : Encoded object.**/
+    void put(String id, byte[] data) {
+        if (!contains(id)) {
+            write(id, new ByteArrayInputStream(data));
+        }
+    }
+
+    /** Copies the contents of SOURCE in under the blob hash code ID, a
+     * chunk at a time, unless they are already stored. The bytes copied
+     * are hashed, after NAME, on the way; if they do not hash to ID, the
+     * file changed since ID was computed and nothing is stored.
+     * @param id : String id.
+     * @param name : Name of the file, as hashed into ID.
+     * @param source : File whose bytes make up the object.**/
+    void putFile(String id, String name, File source) {
+        if (contains(id)) {
+            return;
+        }
+        MessageDigest md = Blob.digest(name);
+        File tmp;
+        try (InputStream in = new DigestInputStream(
+                new FileInputStream(source), md)) {
+            tmp = writeTemp(id, in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (!id.equals(BLOB + Blob.hex(md))) {
+            tmp.delete();
+            throw new GitletException("File " + name
+                    + " changed while it was being added.");
+        }
+        install(id, tmp);
+    }
+
+    /** Stores the object ID, streamed from IN.
+     * @param id : String id.
+     * @param in : Original bytes of the object.**/
+    private void write(String id, InputStream in) {
+        install(id, writeTemp(id, in));
+    }
+
+    /** Streams IN through the codec into a new temporary file for the
+     * object ID and returns it.
+     * @param id : String id.
+     * @param in : Original bytes of the object.**/
+    private File writeTemp(String id, InputStream in) {
+        File tmp = tempFile(id);
+        try (OutputStream out = _codec.encode(new FileOutputStream(tmp))) {
+            in.transferTo(out);
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return tmp;
+    }
+
+    /** Renames the written temporary file TMP into place as the object
+     * ID, so a half written object is never mistaken for a stored one.
+     * It is synced when the journal commits.
+     * @param id : String id.
+     * @param tmp : File.**/
+    private void install(String id, File tmp) {
+        File f = path(id);
+        f.getParentFile().mkdirs();
+        rename(tmp, f);
+        _journal.created(f);
+    }
+
+    /** Returns a stream of the original bytes of the object ID.
+     * @param id : String id.**/
+    InputStream open(String id) throws IOException {
+        if (!path(id).exists()) {
+            Pack p = packOf(id);
+            if (p != null) {
+                return new ByteArrayInputStream(p.get(id));
+            }
+        }
+        return _codec.decode(new FileInputStream(path(id)));
+    }
+
+    /** Returns the original bytes stored under hash code ID.
+     * @param id : String id.**/
+    byte[] getBytes(String id) {
+        if (!path(id).exists()) {
+            Pack p = packOf(id);
+            if (p != null) {
+                return p.get(id);
+            }
+        }
+        try (InputStream in = open(id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the bytes stored under hash code ID to DEST. The bytes go
+     * into a temporary file that then replaces DEST in a single rename,
+     * so DEST is never left half written. Uncompressed objects are moved
+     * with FileChannel.transferTo; compressed ones are inflated through a
+     * fixed buffer. Either way the contents never sit whole on the heap.
+     * @param id : String id.
+     * @param dest : File to restore.**/
+    void copyTo(String id, File dest) {
+        dest.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = tempFile(id);
+        try {
+            if (_codec == Codec.IDENTITY && path(id).exists()) {
+                try (FileChannel in = FileChannel.open(path(id).toPath());
+                     FileChannel out = FileChannel.open(tmp.toPath(),
+                             StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE,
+                             StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long size = in.size();
+                    long pos = 0;
+                    while (pos < size) {
+                        pos += in.transferTo(pos, size - pos, out);
+                    }
+                }
+            } else {
+                try (InputStream in = open(id);
+                     OutputStream out = new FileOutputStream(tmp)) {
+                    byte[] buf = new byte[BUFFER];
+                    for (int n = in.read(buf); n != -1; n = in.read(buf)) {
+                        out.write(buf, 0, n);
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        rename(tmp, dest);
+    }
+
+    /** Returns a fresh temporary file for object ID.
+     * @param id : String id.**/
+    private File tempFile(String id) {
+        File tmp = Utils.join(_dir.getParentFile(), "tmp");
+        tmp.mkdir();
+        return tempFile(tmp, id);
+    }
+
+    /** Returns a new empty file in DIR, named after NAME, to be written
+     * and then renamed into place. No other thread or process is given
+     * the same file, so read-only commands sharing the repo's lock can
+     * write the same derived file at once: each renames a whole copy.
+     * @param dir : Directory of the file.
+     * @param name : Name of the file it will become.**/
+    static File tempFile(File dir, String name) {
+        try {
+            return File.createTempFile(name + ".", ".tmp", dir);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Renames FROM over TO, atomically where the file system allows it.
+     * @param from : File.
+     * @param to : File.**/
+    static void rename(File from, File to) {
+        try {
+            try {
+                Files.move(from.toPath(), to.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException excp) {
+                Files.move(from.toPath(), to.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException excp) {
+            from.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the hash codes of all stored objects whose hash code
+     * starts with PREFIX: a kind (COMMIT, TREE or BLOB) to list every
+     * object of that kind, or a longer prefix to resolve an abbreviated
+     * hash code. Packs are searched through their sorted indexes, and
+     * once PREFIX names a fan-out directory only that directory of
+     * loose objects is listed.
+     * @param prefix : String.**/
+    List<String> ids(String prefix) {
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        for (Pack p : _packs) {
+            result.addAll(p.ids(prefix));
+        }
+        File[] fanout;
+        if (prefix.length() > FANOUT) {
+            fanout = new File[] {
+                Utils.join(_dir, prefix.substring(1, 1 + FANOUT))};
+        } else {
+            fanout = _dir.listFiles();
+        }
+        if (fanout == null) {
+            return new ArrayList<>(result);
+        }
+        for (File dir : fanout) {
+            List<String> names = Utils.plainFilenamesIn(dir);
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.startsWith(prefix)) {
+                    result.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Moves OBJECTS into a single new pack that replaces every existing
+     * pack, and deletes their loose copies once the journal commits.
+     * OBJECTS maps each hash code, in the order they are to be packed, to
+     * the hash code of an object before it to try as its delta base, or
+     * null. Objects of the old packs that are not in OBJECTS are carried
+     * over after them, whole, so packing never loses an object.
+     * @param objects : Objects to pack and their delta bases.**/
+    void pack(Map<String, String> objects) {
+        LinkedHashMap<String, String> all = new LinkedHashMap<>(objects);
+        for (Pack p : _packs) {
+            for (String kind : new String[] {COMMIT, TREE, BLOB}) {
+                for (String id : p.ids(kind)) {
+                    all.putIfAbsent(id, null);
+                }
+            }
+        }
+        File index = Pack.write(packDir(), all, this);
+        String prefix = index.getName().replace(".idx", ".");
+        _journal.created(Utils.join(packDir(), prefix + "pack"));
+        _journal.created(index);
+        ArrayList<Pack> old = _packs;
+        _packs = new ArrayList<>();
+        _packs.add(new Pack(index));
+        for (Pack p : old) {
+            p.close();
+        }
+        File[] packs = packDir().listFiles();
+        for (File f : packs) {
+            if (!f.getName().startsWith(prefix)) {
+                _journal.delete(f);
+            }
+        }
+        for (String id : objects.keySet()) {
+            if (path(id).exists()) {
+                _journal.delete(path(id));
+            }
+        }
+    }
+
+}
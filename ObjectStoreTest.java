@@ -0,0 +1,134 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+
+/** Tests of ObjectStore.
+ *  @author Neel Dhoundiyal
+ */
+public class ObjectStoreTest {
+
+    /** Returns a new empty store. **/
+    static ObjectStore store() {
+        File dir = new File(UnitTest.tempDir(), ".gitlet/objects");
+        return ObjectStore.create(dir, Codec.IDENTITY);
+    }
+
+    /** Returns the hash code a blob holding TEXT would have.
+     *  @param text : String.*/
+    static String blobId(String text) {
+        return ObjectStore.BLOB + Utils.sha1(text);
+    }
+
+    /** A prefix finds every object whose hash code starts with it,
+     *  loose or packed, and only those. **/
+    public static void testIdsByPrefix() {
+        ObjectStore s = store();
+        String hash = Utils.sha1("x");
+        String a = ObjectStore.BLOB + "abc1" + hash.substring(4);
+        String b = ObjectStore.BLOB + "abc2" + hash.substring(4);
+        String c = ObjectStore.BLOB + "abd1" + hash.substring(4);
+        s.put(a, new byte[] {1});
+        s.put(b, new byte[] {2});
+        LinkedHashMap<String, String> packed = new LinkedHashMap<>();
+        packed.put(a, null);
+        s.pack(packed);
+        s.put(c, new byte[] {3});
+        assertEquals("shared prefix", 2,
+                s.ids(ObjectStore.BLOB + "abc").size());
+        assertEquals("packed", Arrays.asList(a), s.ids(a.substring(0, 6)));
+        assertEquals("loose", Arrays.asList(c), s.ids(c.substring(0, 4)));
+        assertEquals("all", 3, s.ids(ObjectStore.BLOB + "ab").size());
+        assertTrue("none", s.ids(ObjectStore.BLOB + "abe").isEmpty());
+    }
+
+    /** Objects read back as they were written, and are found by kind and
+     *  by prefix. **/
+    public static void testPutGetRoundTrip() {
+        ObjectStore s = store();
+        String id = blobId("hello");
+        assertTrue("absent before", !s.contains(id));
+        s.put(id, "hello".getBytes(StandardCharsets.UTF_8));
+        assertTrue("present after", s.contains(id));
+        assertEquals("bytes", "hello", new String(s.getBytes(id),
+                StandardCharsets.UTF_8));
+        assertTrue("listed by kind", s.ids(ObjectStore.BLOB).contains(id));
+        assertEquals("listed by prefix", 1,
+                s.ids(id.substring(0, 8)).size());
+    }
+
+    /** Returns bytes of every value, N of them.
+     *  @param n : int.*/
+    static byte[] binary(int n) {
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i += 1) {
+            bytes[i] = (byte) (i * 7 + i / 256);
+        }
+        return bytes;
+    }
+
+    /** A binary file copied in and checked out again is byte for byte
+     *  the same, and replaces what was at the destination. **/
+    public static void testCopyToRoundTrip() {
+        ObjectStore s = store();
+        File dir = UnitTest.tempDir();
+        File source = new File(dir, "in.bin");
+        byte[] bytes = binary((1 << 17) + 3);
+        Utils.writeContents(source, bytes);
+        String id = ObjectStore.BLOB + Utils.sha1(bytes);
+        s.putFile(id, "", source);
+        File dest = new File(dir, "sub/out.bin");
+        dest.getParentFile().mkdirs();
+        Utils.writeContents(dest, "old contents");
+        s.copyTo(id, dest);
+        assertTrue("same bytes", Arrays.equals(bytes,
+                Utils.readContents(dest)));
+    }
+
+    /** A file that changed since it was hashed is not stored under the
+     *  old hash code. **/
+    public static void testChangedFileNotStored() {
+        ObjectStore s = store();
+        File source = new File(UnitTest.tempDir(), "a.txt");
+        Utils.writeContents(source, "one");
+        String id = ObjectStore.BLOB + Blob.hash("a.txt", source);
+        Utils.writeContents(source, "two");
+        UnitTest.assertThrows("changed", GitletException.class,
+                () -> s.putFile(id, "a.txt", source));
+        assertTrue("not stored", !s.contains(id));
+        Utils.writeContents(source, "one");
+        s.putFile(id, "a.txt", source);
+        assertEquals("stored", "one", new String(s.getBytes(id),
+                StandardCharsets.UTF_8));
+    }
+
+    /** A repo's binary file checks out unchanged. **/
+    public static void testCheckoutBinaryFile() {
+        File dir = UnitTest.tempDir();
+        UnitTest.gitlet(dir, "init");
+        byte[] bytes = binary(5000);
+        Utils.writeContents(new File(dir, "a.bin"), bytes);
+        UnitTest.gitlet(dir, "add", "a.bin");
+        UnitTest.gitlet(dir, "commit", "binary");
+        Utils.writeContents(new File(dir, "a.bin"), "changed");
+        UnitTest.gitlet(dir, "checkout", "--", "a.bin");
+        assertTrue("restored", Arrays.equals(bytes,
+                Utils.readContents(new File(dir, "a.bin"))));
+    }
+
+    /** Putting an object already stored keeps the first copy. **/
+    public static void testPutIfAbsent() {
+        ObjectStore s = store();
+        String id = blobId("x");
+        s.put(id, "first".getBytes(StandardCharsets.UTF_8));
+        s.put(id, "second".getBytes(StandardCharsets.UTF_8));
+        assertEquals("kept", "first", new String(s.getBytes(id),
+                StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,333 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** A packfile: many objects stored together, each deflated and, where
+ * an older version of the same file is similar enough, stored as a delta
+ * against a newer one. Every pack has an index of its hash codes, sorted
+ * so that an object is found by binary search over the memory-mapped
+ * index and then read from its offset in the pack.
+ * @author Neel Dhoundiyal **/
+class Pack {
+
+    /** First int of every pack file. **/
+    private static final int PACK_MAGIC = 0x474c504b;
+
+    /** First int of every index file. **/
+    private static final int INDEX_MAGIC = 0x474c4958;
+
+    /** Version of the pack and index formats. **/
+    private static final int VERSION = 1;
+
+    /** Length of a hash code. **/
+    private static final int ID_LENGTH = 41;
+
+    /** Length of an index entry: a hash code and its offset. **/
+    private static final int ENTRY = ID_LENGTH + Long.BYTES;
+
+    /** Length of the index header: magic, version and count. **/
+    private static final int HEADER = 3 * Integer.BYTES;
+
+    /** Length of the header of a pack entry: kind, base offset, raw and
+     * stored lengths. **/
+    private static final int ENTRY_HEADER = 1 + Long.BYTES
+            + 2 * Integer.BYTES;
+
+    /** Kind of an entry holding the whole object. **/
+    private static final byte FULL = 0;
+
+    /** Kind of an entry holding a delta against another entry. **/
+    private static final byte DELTA = 1;
+
+    /** Longest chain of deltas an object may sit at the end of. **/
+    private static final int MAX_DEPTH = 16;
+
+    /** A delta is only kept if it is smaller than the object divided by
+     * this. **/
+    private static final int MIN_SAVING = 2;
+
+    /** Size of the buffer used while deflating. **/
+    private static final int BUFFER = 1 << 16;
+
+    /** The pack file. **/
+    private File _packFile;
+
+    /** The index file, mapped into memory. **/
+    private MappedByteBuffer _index;
+
+    /** Number of objects in the pack. **/
+    private int _count;
+
+    /** Channel the pack is read through, opened on first use. **/
+    private FileChannel _channel;
+
+    /** Opens the pack whose index is INDEXFILE.
+     * @param indexFile : Reps the .idx file of the pack.**/
+    Pack(File indexFile) {
+        String name = indexFile.getName();
+        _packFile = new File(indexFile.getParentFile(),
+                name.substring(0, name.length() - ".idx".length()) + ".pack");
+        try (FileChannel in = FileChannel.open(indexFile.toPath())) {
+            _index = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (_index.getInt(0) != INDEX_MAGIC
+                || _index.getInt(Integer.BYTES) != VERSION) {
+            throw new IllegalArgumentException("Bad pack index "
+                    + indexFile);
+        }
+        _count = _index.getInt(2 * Integer.BYTES);
+    }
+
+    /** Returns the hash code of the Ith object in the index.
+     * @param i : int.**/
+    private String idAt(int i) {
+        byte[] id = new byte[ID_LENGTH];
+        _index.get(HEADER + i * ENTRY, id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+
+    /** Returns the position in the index of the first hash code that is
+     * not less than KEY, or the number of objects if there is none.
+     * @param key : A hash code or a prefix of one.**/
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = _count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (idAt(mid).compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Returns the offset in the pack of the object ID, or -1.
+     * @param id : String id.**/
+    private long find(String id) {
+        int i = lowerBound(id);
+        if (i < _count && idAt(i).equals(id)) {
+            return _index.getLong(HEADER + i * ENTRY + ID_LENGTH);
+        }
+        return -1;
+    }
+
+    /** Returns true if the object ID is in this pack.
+     * @param id : String id.**/
+    boolean contains(String id) {
+        return find(id) != -1;
+    }
+
+    /** Returns the bytes of the object ID, or null if it is not in this
+     * pack.
+     * @param id : String id.**/
+    byte[] get(String id) {
+        long offset = find(id);
+        return offset == -1 ? null : read(offset);
+    }
+
+    /** Returns the hash codes of all the objects in this pack whose hash
+     * code starts with PREFIX, in order. Since the index is sorted they
+     * are one run of it, found by binary search.
+     * @param prefix : String.**/
+    List<String> ids(String prefix) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = lowerBound(prefix); i < _count; i += 1) {
+            String id = idAt(i);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /** Returns the bytes of the object at OFFSET, resolving its delta
+     * chain if it has one.
+     * @param offset : long.**/
+    private synchronized byte[] read(long offset) {
+        try {
+            if (_channel == null) {
+                _channel = FileChannel.open(_packFile.toPath());
+            }
+            ByteBuffer head = ByteBuffer.allocate(ENTRY_HEADER);
+            readFully(head, offset);
+            head.flip();
+            byte kind = head.get();
+            long base = head.getLong();
+            int raw = head.getInt();
+            ByteBuffer stored = ByteBuffer.allocate(head.getInt());
+            readFully(stored, offset + ENTRY_HEADER);
+            byte[] data = inflate(stored.array(), raw);
+            if (kind == DELTA) {
+                return Delta.apply(read(base), data);
+            }
+            return data;
+        } catch (IOException | DataFormatException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Fills BUF from the pack starting at POSITION.
+     * @param buf : ByteBuffer.
+     * @param position : long.**/
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = _channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("Truncated pack " + _packFile);
+            }
+            position += n;
+        }
+    }
+
+    /** Closes the pack. **/
+    synchronized void close() {
+        try {
+            if (_channel != null) {
+                _channel.close();
+                _channel = null;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes a pack of OBJECTS into DIR and returns its index file.
+     * OBJECTS maps each hash code, in the order they are to be written,
+     * to the hash code of an object written before it that it is likely
+     * to be similar to, or null. SOURCE supplies the bytes.
+     * @param dir : Directory of the packs.
+     * @param objects : Objects to pack and their delta bases.
+     * @param source : Store holding the objects.**/
+    static File write(File dir, Map<String, String> objects,
+                      ObjectStore source) {
+        ArrayList<String> sorted = new ArrayList<>(objects.keySet());
+        Collections.sort(sorted);
+        String name = "pack-" + Utils.sha1(new ArrayList<Object>(sorted));
+        File packFile = Utils.join(dir, name + ".pack");
+        File indexFile = Utils.join(dir, name + ".idx");
+        File packTmp = Utils.join(dir, name + ".pack.tmp");
+        File indexTmp = Utils.join(dir, name + ".idx.tmp");
+        dir.mkdirs();
+        HashMap<String, Long> offsets = new HashMap<>();
+        HashMap<String, Integer> depths = new HashMap<>();
+        HashSet<String> bases = new HashSet<>(objects.values());
+        HashMap<String, byte[]> waiting = new HashMap<>();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(packTmp)))) {
+            out.writeInt(PACK_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(objects.size());
+            long offset = HEADER;
+            for (Map.Entry<String, String> e : objects.entrySet()) {
+                String id = e.getKey();
+                byte[] data = source.getBytes(id);
+                byte kind = FULL;
+                long baseOffset = -1;
+                byte[] body = data;
+                byte[] base = waiting.remove(e.getValue());
+                if (base != null && depths.get(e.getValue()) < MAX_DEPTH) {
+                    byte[] delta = Delta.create(base, data);
+                    if (delta.length < data.length / MIN_SAVING) {
+                        kind = DELTA;
+                        baseOffset = offsets.get(e.getValue());
+                        body = delta;
+                    }
+                }
+                depths.put(id, kind == DELTA
+                        ? depths.get(e.getValue()) + 1 : 0);
+                if (bases.contains(id)) {
+                    waiting.put(id, data);
+                }
+                byte[] stored = deflate(body);
+                offsets.put(id, offset);
+                out.writeByte(kind);
+                out.writeLong(baseOffset);
+                out.writeInt(body.length);
+                out.writeInt(stored.length);
+                out.write(stored);
+                offset += ENTRY_HEADER + stored.length;
+            }
+        } catch (IOException excp) {
+            packTmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + sorted.size() * ENTRY);
+        buf.putInt(INDEX_MAGIC);
+        buf.putInt(VERSION);
+        buf.putInt(sorted.size());
+        for (String id : sorted) {
+            buf.put(id.getBytes(StandardCharsets.US_ASCII));
+            buf.putLong(offsets.get(id));
+        }
+        Utils.writeContents(indexTmp, buf.array());
+        ObjectStore.rename(packTmp, packFile);
+        ObjectStore.rename(indexTmp, indexFile);
+        return indexFile;
+    }
+
+    /** Returns DATA compressed with a Deflater.
+     * @param data : byte[].**/
+    private static byte[] deflate(byte[] data) {
+        Deflater def = new Deflater();
+        try {
+            def.setInput(data);
+            def.finish();
+            ByteArrayOutputStream out =
+                    new ByteArrayOutputStream(data.length / 2 + 1);
+            byte[] buf = new byte[BUFFER];
+            while (!def.finished()) {
+                out.write(buf, 0, def.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            def.end();
+        }
+    }
+
+    /** Returns STORED inflated into its RAW bytes.
+     * @param stored : byte[].
+     * @param raw : Length of the inflated bytes.**/
+    private static byte[] inflate(byte[] stored, int raw)
+            throws DataFormatException {
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(stored);
+            byte[] data = new byte[raw];
+            int n = 0;
+            while (n < raw && !inf.finished()) {
+                int k = inf.inflate(data, n, raw - n);
+                if (k == 0 && inf.needsInput()) {
+                    throw new DataFormatException("Truncated pack entry.");
+                }
+                n += k;
+            }
+            return data;
+        } finally {
+            inf.end();
+        }
+    }
+
+}
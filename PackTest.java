@@ -0,0 +1,88 @@
+package gitlet;
+
+import java.io.File;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+import static gitlet.UnitTest.write;
+
+/** Tests of packing: Pack, Delta and the pack command.
+ *  @author Neel Dhoundiyal
+ */
+public class PackTest {
+
+    /** Returns the hash code of the head commit of the repo in DIR.
+     *  @param dir : Working directory of the repo.*/
+    static String head(File dir) {
+        String log = gitlet(dir, "log", "-n", "1");
+        return log.split("\n")[1].substring("commit ".length());
+    }
+
+    /** Every version of a file packed as deltas reads back whole. **/
+    public static void testDeltaVersionsReadBack() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        StringBuilder text = new StringBuilder();
+        String[] heads = new String[6];
+        for (int i = 0; i < heads.length; i += 1) {
+            for (int k = 0; k < 200; k += 1) {
+                text.append("line ").append(i).append(' ').append(k)
+                        .append('\n');
+            }
+            write(dir, "a.txt", text.toString());
+            gitlet(dir, "add", "a.txt");
+            gitlet(dir, "commit", "version " + i);
+            heads[i] = head(dir);
+        }
+        gitlet(dir, "pack");
+        assertEquals("nothing left loose", 0, loose(dir));
+        for (int i = 0; i < heads.length; i += 1) {
+            gitlet(dir, "checkout", heads[i], "--", "a.txt");
+            assertEquals("version " + i, 200 * (i + 1),
+                    UnitTest.read(dir, "a.txt").split("\n").length);
+        }
+    }
+
+    /** Returns the number of loose objects of the repo in DIR.
+     *  @param dir : Working directory of the repo.*/
+    static int loose(File dir) {
+        int n = 0;
+        for (File f : new File(dir, ".gitlet/objects").listFiles()) {
+            String[] names = f.list();
+            n += names == null ? 0 : names.length;
+        }
+        return n;
+    }
+
+    /** Commits no branch reaches survive packing, packed or loose, and
+     *  can still be found and checked out. **/
+    public static void testUnreachableHistoryKept() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        write(dir, "a.txt", "one");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "one");
+        String one = head(dir);
+        write(dir, "a.txt", "two");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "two");
+        String two = head(dir);
+        gitlet(dir, "pack");
+        gitlet(dir, "reset", one);
+        write(dir, "a.txt", "three");
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "three");
+        String three = head(dir);
+        gitlet(dir, "reset", one);
+        gitlet(dir, "pack");
+        assertEquals("found", two + "\n", gitlet(dir, "find", "two"));
+        assertTrue("in global-log", gitlet(dir, "global-log")
+                .contains(three));
+        gitlet(dir, "checkout", two, "--", "a.txt");
+        assertEquals("packed before", "two", UnitTest.read(dir, "a.txt"));
+        gitlet(dir, "checkout", three, "--", "a.txt");
+        assertEquals("loose", "three", UnitTest.read(dir, "a.txt"));
+    }
+
+}
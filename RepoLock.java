@@ -0,0 +1,60 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+
+/** A lock on a whole repo, taken on .gitlet/lock through the operating
+ * system, so it holds across processes. Commands that change the repo
+ * take it exclusively and so run one at a time, each reading the refs
+ * and staging area only after the last one has written them; commands
+ * that only read take it shared and run alongside each other. The lock
+ * goes away with the process holding it, so a crash cannot leave a
+ * stale one behind; what a crash can leave is a committed Journal not
+ * yet carried out, which taking the lock finishes first.
+ * @author Neel Dhoundiyal **/
+class RepoLock implements AutoCloseable {
+
+    /** Name of the lock file in .gitlet. **/
+    static final String FILE = "lock";
+
+    /** Open channel to the lock file; closing it releases the lock. **/
+    private FileChannel _channel;
+
+    /** Waits for and takes the lock on the repo whose .gitlet directory is
+     * DIR, shared if SHARED and exclusive otherwise.
+     * @param dir : Reps the .gitlet directory.
+     * @param shared : True for a command that only reads.**/
+    RepoLock(File dir, boolean shared) {
+        try {
+            _channel = FileChannel.open(new File(dir, FILE).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (!shared || Journal.pending(dir)) {
+                FileLock lock = _channel.lock();
+                Journal.recover(dir);
+                if (shared) {
+                    lock.release();
+                }
+            }
+            if (shared) {
+                _channel.lock(0, Long.MAX_VALUE, true);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Releases the lock. **/
+    @Override
+    public void close() {
+        try {
+            _channel.close();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The staging area: every path staged for the next commit, keyed by
+ * path, either to be added with the hash code of its new blob or to be
+ * removed. Staging, unstaging and looking up a path take one map
+ * operation, so add and commit stay linear in the number of paths
+ * staged. Kept in .gitlet/stage.
+ * @author Neel Dhoundiyal **/
+class Stage {
+
+    /** Tag of the encoded staging area. **/
+    static final int TAG = 'S';
+
+    /** Format version of the encoded staging area. **/
+    static final int VERSION = 1;
+
+    /** One staged path. **/
+    private static class Entry {
+        /** True if the path is staged for removal. **/
+        private boolean _removed;
+        /** Blob hash code the path is staged with; for a removal, the
+         * hash code it had in the head commit. **/
+        private String _hash;
+    }
+
+    /** The file the staging area is kept in. **/
+    private File _file;
+
+    /** Entries keyed by path, in path order. **/
+    private TreeMap<String, Entry> _entries;
+
+    /** True if the entries changed since the staging area was read. **/
+    private boolean _dirty;
+
+    /** Journal the staging area is written through. **/
+    private Journal _journal;
+
+    /** Staging area read from FILE, or empty if FILE does not exist. It
+     * is written back when JOURNAL commits.
+     * @param file : Reps the staging area file.
+     * @param journal : Reps the journal of the current command.**/
+    Stage(File file, Journal journal) {
+        _file = file;
+        _journal = journal;
+        _entries = new TreeMap<>();
+        if (!file.exists()) {
+            return;
+        }
+        Decoder in = new Decoder(Utils.readContents(file), TAG, VERSION);
+        int n = (int) in.readVarint();
+        for (int i = 0; i < n; i += 1) {
+            String name = in.readString();
+            Entry e = new Entry();
+            e._removed = in.readBoolean();
+            e._hash = in.readHash(ObjectStore.BLOB);
+            _entries.put(name, e);
+        }
+    }
+
+    /** Stages NAME to be added with the blob HASH.
+     * @param name : Path of the file.
+     * @param hash : Blob hash code.**/
+    void add(String name, String hash) {
+        put(name, false, hash);
+    }
+
+    /** Stages NAME, whose blob in the head commit is HASH, for removal.
+     * @param name : Path of the file.
+     * @param hash : Blob hash code.**/
+    void remove(String name, String hash) {
+        put(name, true, hash);
+    }
+
+    /** Records the entry for NAME.
+     * @param name : Path of the file.
+     * @param removed : True for a removal.
+     * @param hash : Blob hash code.**/
+    private void put(String name, boolean removed, String hash) {
+        Entry e = new Entry();
+        e._removed = removed;
+        e._hash = hash;
+        _entries.put(name, e);
+        _dirty = true;
+    }
+
+    /** Forgets whatever is staged for NAME.
+     * @param name : Path of the file.**/
+    void unstage(String name) {
+        if (_entries.remove(name) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Returns true if NAME is staged to be added.
+     * @param name : Path of the file.**/
+    boolean isAdded(String name) {
+        Entry e = _entries.get(name);
+        return e != null && !e._removed;
+    }
+
+    /** Returns true if NAME is staged for removal.
+     * @param name : Path of the file.**/
+    boolean isRemoved(String name) {
+        Entry e = _entries.get(name);
+        return e != null && e._removed;
+    }
+
+    /** Returns the blob hash code NAME is staged with, or null.
+     * @param name : Path of the file.**/
+    String get(String name) {
+        Entry e = _entries.get(name);
+        return e == null ? null : e._hash;
+    }
+
+    /** Returns the paths staged to be added and their blob hash codes,
+     * in path order. **/
+    TreeMap<String, String> added() {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            if (!e.getValue()._removed) {
+                result.put(e.getKey(), e.getValue()._hash);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the paths staged for removal, in path order. **/
+    List<String> removed() {
+        ArrayList<String> result = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            if (e.getValue()._removed) {
+                result.add(e.getKey());
+            }
+        }
+        return result;
+    }
+
+    /** Returns every staged path mapped to its new blob hash code, or to
+     * null if it is to be removed, in path order. **/
+    TreeMap<String, String> changes() {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            result.put(e.getKey(),
+                    e.getValue()._removed ? null : e.getValue()._hash);
+        }
+        return result;
+    }
+
+    /** Returns true if nothing is staged. **/
+    boolean isEmpty() {
+        return _entries.isEmpty();
+    }
+
+    /** Unstages everything. **/
+    void clear() {
+        if (!_entries.isEmpty()) {
+            _entries.clear();
+            _dirty = true;
+        }
+    }
+
+    /** Writes the staging area back to its file, through the journal, if
+     * it changed. **/
+    void save() {
+        if (!_dirty) {
+            return;
+        }
+        Encoder out = new Encoder(TAG, VERSION);
+        out.writeVarint(_entries.size());
+        for (Map.Entry<String, Entry> me : _entries.entrySet()) {
+            out.writeString(me.getKey());
+            out.writeBoolean(me.getValue()._removed);
+            out.writeHash(me.getValue()._hash);
+        }
+        _journal.replace(_file, out.toByteArray());
+        _dirty = false;
+    }
+
+}
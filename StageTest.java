@@ -0,0 +1,76 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static gitlet.UnitTest.assertEquals;
+import static gitlet.UnitTest.assertTrue;
+import static gitlet.UnitTest.gitlet;
+
+/** Tests of Stage.
+ *  @author Neel Dhoundiyal
+ */
+public class StageTest {
+
+    /** Additions and removals are kept apart, and a path staged again
+     *  replaces its old entry. **/
+    public static void testAddRemoveUnstage() {
+        Stage s = new Stage(new File(UnitTest.tempDir(), "stage"),
+                new Journal(null));
+        String a = ObjectStoreTest.blobId("a");
+        String b = ObjectStoreTest.blobId("b");
+        assertTrue("empty", s.isEmpty());
+        s.add("a.txt", a);
+        s.remove("b.txt", b);
+        assertTrue("a added", s.isAdded("a.txt") && !s.isRemoved("a.txt"));
+        assertTrue("b removed", s.isRemoved("b.txt") && !s.isAdded("b.txt"));
+        assertEquals("a hash", a, s.get("a.txt"));
+        assertEquals("added", "{a.txt=" + a + "}", s.added().toString());
+        assertEquals("removed", Arrays.asList("b.txt"), s.removed());
+        s.add("b.txt", a);
+        assertTrue("b re-added", s.isAdded("b.txt"));
+        assertEquals("b hash", a, s.get("b.txt"));
+        s.unstage("a.txt");
+        assertTrue("a unstaged", !s.isAdded("a.txt") && s.get("a.txt") == null);
+        s.clear();
+        assertTrue("cleared", s.isEmpty());
+    }
+
+    /** A saved staging area reads back with the same entries. **/
+    public static void testSaveAndReload() {
+        File file = new File(UnitTest.tempDir(), "stage");
+        Stage s = new Stage(file, new Journal(null));
+        String a = ObjectStoreTest.blobId("a");
+        String b = ObjectStoreTest.blobId("b");
+        s.add("dir/a.txt", a);
+        s.remove("b.txt", b);
+        s.save();
+        Stage t = new Stage(file, new Journal(null));
+        assertEquals("changes", s.changes(), t.changes());
+        assertEquals("removed hash", b, t.get("b.txt"));
+    }
+
+    /** Many staged files commit in one go, and rm of a file that is only
+     *  staged just unstages it. **/
+    public static void testManyFilesStaged() {
+        File dir = UnitTest.tempDir();
+        gitlet(dir, "init");
+        int n = 500;
+        for (int i = 0; i < n; i += 1) {
+            UnitTest.write(dir, "f/" + i + ".txt", "file " + i);
+        }
+        gitlet(dir, "add", "f");
+        gitlet(dir, "commit", "many");
+        new File(dir, "f/123.txt").delete();
+        gitlet(dir, "checkout", "--", "f/123.txt");
+        assertEquals("restored", "file 123",
+                UnitTest.read(dir, "f/123.txt"));
+        UnitTest.write(dir, "new.txt", "new");
+        gitlet(dir, "add", "new.txt");
+        gitlet(dir, "rm", "new.txt");
+        assertTrue("new.txt kept", new File(dir, "new.txt").exists());
+        assertEquals("nothing staged", "",
+                GitletTest.section(dir, "Staged Files"));
+    }
+
+}
@@ -0,0 +1,206 @@
+package gitlet;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/** Represents one directory of a commit: the names in it mapped to the
+ * hash codes of their blobs, or of their own Trees for subdirectories.
+ * A Tree's hash code is the hash of its encoded form, so identical
+ * directories share one stored Tree across commits, and two trees with
+ * the same hash code can be skipped without looking inside.
+ * @author Neel Dhoundiyal **/
+public class Tree implements Serializable {
+
+    /** Tag of encoded trees. **/
+    static final int TAG = 'T';
+
+    /** Format version of encoded trees. **/
+    static final int VERSION = 1;
+
+    /** Hash code of the tree with no entries. **/
+    static final String EMPTY = new Tree(new TreeMap<>()).getHashCodeTree();
+
+    /** Maps each name in the directory to a blob or tree hash code. **/
+    private TreeMap<String, String> _entries;
+
+    /** Stores the hash code of the tree. **/
+    private String _hashCodeTree;
+
+    /** Tree constructor.
+     * @param entries : Reps the names in the directory and their hash
+     *                codes.**/
+    Tree(TreeMap<String, String> entries) {
+        _entries = entries;
+        _hashCodeTree = ObjectStore.TREE + Utils.sha1(encode());
+    }
+
+    /** Returns the entries of the tree, keyed by name. **/
+    TreeMap<String, String> getEntries() {
+        return _entries;
+    }
+
+    /** Returns the hash code of the tree. **/
+    String getHashCodeTree() {
+        return _hashCodeTree;
+    }
+
+    /** Returns the encoded form of this tree. **/
+    byte[] encode() {
+        Encoder out = new Encoder(TAG, VERSION);
+        out.writeVarint(_entries.size());
+        for (Map.Entry<String, String> e : _entries.entrySet()) {
+            out.writeString(e.getKey());
+            out.writeBoolean(isTree(e.getValue()));
+            out.writeHash(e.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the tree encoded in DATA.
+     * @param data : byte[].**/
+    static Tree decode(byte[] data) {
+        Decoder in = new Decoder(data, TAG, VERSION);
+        int n = (int) in.readVarint();
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = 0; i < n; i += 1) {
+            String name = in.readString();
+            String kind = in.readBoolean() ? ObjectStore.TREE
+                    : ObjectStore.BLOB;
+            entries.put(name, in.readHash(kind));
+        }
+        return new Tree(entries);
+    }
+
+    /** Returns true if ID is the hash code of a tree.
+     * @param id : String id.**/
+    static boolean isTree(String id) {
+        return id.startsWith(ObjectStore.TREE);
+    }
+
+    /** Returns the tree ID from STORE.
+     * @param store : ObjectStore.
+     * @param id : String id.**/
+    static Tree read(ObjectStore store, String id) {
+        return decode(store.getBytes(id));
+    }
+
+    /** Adds every file under the tree ID to FILES, keyed by its path
+     * below PREFIX.
+     * @param store : ObjectStore.
+     * @param id : String id.
+     * @param prefix : Path of the tree, ending in '/', or "".
+     * @param files : Map receiving path to blob hash code.**/
+    static void flatten(ObjectStore store, String id, String prefix,
+                        Map<String, String> files) {
+        for (Map.Entry<String, String> e : read(store, id)
+                .getEntries().entrySet()) {
+            if (isTree(e.getValue())) {
+                flatten(store, e.getValue(), prefix + e.getKey() + "/",
+                        files);
+            } else {
+                files.put(prefix + e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /** Returns the blob hash code of the file at PATH under the tree ID,
+     * or null if there is none. Only the trees along PATH are read.
+     * @param store : ObjectStore.
+     * @param id : String id.
+     * @param path : Path of the file, separated by '/'.**/
+    static String lookup(ObjectStore store, String id, String path) {
+        for (String part : path.split("/")) {
+            if (id == null || !isTree(id)) {
+                return null;
+            }
+            id = read(store, id).getEntries().get(part);
+        }
+        return id == null || isTree(id) ? null : id;
+    }
+
+    /** Writes the trees that result from applying CHANGES to the tree ID
+     * and returns the new root's hash code. CHANGES maps paths below ID
+     * to their new blob hash codes, or to null to remove them. Only the
+     * trees along changed paths are read and rewritten; every other
+     * subtree keeps its hash code. Directories left empty disappear.
+     * @param store : ObjectStore.
+     * @param id : String id, or null for an empty directory.
+     * @param changes : Map of path to blob hash code or null.**/
+    static String update(ObjectStore store, String id,
+                         SortedMap<String, String> changes) {
+        TreeMap<String, String> entries = id == null
+                ? new TreeMap<>() : read(store, id).getEntries();
+        TreeMap<String, TreeMap<String, String>> subdirs = new TreeMap<>();
+        for (Map.Entry<String, String> c : changes.entrySet()) {
+            String path = c.getKey();
+            int slash = path.indexOf('/');
+            if (slash == -1) {
+                if (c.getValue() == null) {
+                    entries.remove(path);
+                } else {
+                    entries.put(path, c.getValue());
+                }
+            } else {
+                subdirs.computeIfAbsent(path.substring(0, slash),
+                        k -> new TreeMap<>())
+                        .put(path.substring(slash + 1), c.getValue());
+            }
+        }
+        for (Map.Entry<String, TreeMap<String, String>> d
+                : subdirs.entrySet()) {
+            String old = entries.get(d.getKey());
+            String sub = update(store, old != null && isTree(old)
+                    ? old : null, d.getValue());
+            if (sub.equals(EMPTY)) {
+                entries.remove(d.getKey());
+            } else {
+                entries.put(d.getKey(), sub);
+            }
+        }
+        Tree t = new Tree(entries);
+        store.put(t.getHashCodeTree(), t.encode());
+        return t.getHashCodeTree();
+    }
+
+    /** Adds to CHANGES every file that differs between the trees A and B,
+     * keyed by its path below PREFIX and mapped to its blob hash codes in
+     * A and in B (null where it is missing). Subtrees with equal hash
+     * codes are skipped without being read.
+     * @param store : ObjectStore.
+     * @param a : String id of a tree, or null.
+     * @param b : String id of a tree, or null.
+     * @param prefix : Path of the trees, ending in '/', or "".
+     * @param changes : Map receiving path to {old, new} hash codes.**/
+    static void diff(ObjectStore store, String a, String b, String prefix,
+                     SortedMap<String, String[]> changes) {
+        if (a != null && a.equals(b)) {
+            return;
+        }
+        TreeMap<String, String> ea = a == null
+                ? new TreeMap<>() : read(store, a).getEntries();
+        TreeMap<String, String> eb = b == null
+                ? new TreeMap<>() : read(store, b).getEntries();
+        TreeMap<String, String> names = new TreeMap<>(ea);
+        names.putAll(eb);
+        for (String name : names.keySet()) {
+            String x = ea.get(name);
+            String y = eb.get(name);
+            if (x != null && x.equals(y)) {
+                continue;
+            }
+            String xt = x != null && isTree(x) ? x : null;
+            String yt = y != null && isTree(y) ? y : null;
+            String xb = xt == null ? x : null;
+            String yb = yt == null ? y : null;
+            if (xt != null || yt != null) {
+                diff(store, xt, yt, prefix + name + "/", changes);
+            }
+            if (xb != null || yb != null) {
+                changes.put(prefix + name, new String[] {xb, yb});
+            }
+        }
+    }
+
+}
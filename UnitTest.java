@@ -0,0 +1,199 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/** The unit tests of Gitlet, run by 'make unit' as
+ *  java -ea gitlet.UnitTest. Each test class holds public static void
+ *  methods named test..., run in name order; a test passes if it
+ *  returns and fails if it throws. Tests that need a whole repo run
+ *  gitlet.Main in a fresh temporary directory, as a user would.
+ *  @author Neel Dhoundiyal
+ */
+public class UnitTest {
+
+    /** The test classes. **/
+    static final Class<?>[] CLASSES = {
+        CommitTest.class,
+        ObjectStoreTest.class,
+        BlobTest.class,
+        GitletTest.class,
+        CodecTest.class,
+        PackTest.class,
+        EncoderTest.class,
+        IndexTest.class,
+        StageTest.class,
+        CommitCacheTest.class,
+        CommitGraphTest.class,
+        MergeTest.class,
+        DiffTest.class,
+        DaemonTest.class,
+        JournalTest.class,
+        LogFilterTest.class,
+        MessageIndexTest.class,
+    };
+
+    /** Runs every test of CLASSES and exits with status 1 if any failed.
+     *  @param ignored : Unused.*/
+    public static void main(String[] ignored) {
+        int run = 0;
+        int failed = 0;
+        for (Class<?> c : CLASSES) {
+            Method[] methods = c.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method m : methods) {
+                if (!m.getName().startsWith("test")
+                        || !Modifier.isStatic(m.getModifiers())
+                        || m.getParameterCount() != 0) {
+                    continue;
+                }
+                run += 1;
+                try {
+                    m.invoke(null);
+                } catch (InvocationTargetException excp) {
+                    failed += 1;
+                    System.out.println("FAIL " + c.getSimpleName() + "."
+                            + m.getName() + ": " + excp.getCause());
+                } catch (IllegalAccessException excp) {
+                    failed += 1;
+                    System.out.println("FAIL " + c.getSimpleName() + "."
+                            + m.getName() + ": " + excp);
+                }
+            }
+        }
+        System.out.println("Ran " + run + " tests; " + failed + " failed.");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /** Fails with MESSAGE unless COND.
+     *  @param message : String.
+     *  @param cond : boolean.*/
+    static void assertTrue(String message, boolean cond) {
+        if (!cond) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /** Fails with MESSAGE unless EXPECTED equals ACTUAL.
+     *  @param message : String.
+     *  @param expected : Object.
+     *  @param actual : Object.*/
+    static void assertEquals(String message, Object expected,
+                             Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected
+                    + "> but was <" + actual + ">");
+        }
+    }
+
+    /** Fails with MESSAGE unless RUN throws an exception of type KIND.
+     *  @param message : String.
+     *  @param kind : Class of exception expected.
+     *  @param run : Code to run.*/
+    static void assertThrows(String message,
+                             Class<? extends Throwable> kind,
+                             Runnable run) {
+        try {
+            run.run();
+        } catch (Throwable excp) {
+            if (kind.isInstance(excp)) {
+                return;
+            }
+            throw new AssertionError(message + ": threw " + excp);
+        }
+        throw new AssertionError(message + ": threw nothing");
+    }
+
+    /** Returns a new empty temporary directory, deleted with everything
+     *  in it on exit. **/
+    static File tempDir() {
+        try {
+            File dir = Files.createTempDirectory("gitlet-test").toFile();
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(() -> deleteAll(dir)));
+            return dir;
+        } catch (IOException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
+    /** Deletes F and, if it is a directory, everything in it.
+     *  @param f : File.*/
+    static void deleteAll(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                deleteAll(g);
+            }
+        }
+        f.delete();
+    }
+
+    /** Runs gitlet.Main with ARGS in the directory DIR, waits for it,
+     *  and returns what it printed.
+     *  @param dir : Working directory.
+     *  @param args : Command and operands.*/
+    static String gitlet(File dir, String... args) {
+        Process p = start(dir, args);
+        try {
+            String out = new String(p.getInputStream().readAllBytes(),
+                    StandardCharsets.UTF_8);
+            p.waitFor();
+            return out;
+        } catch (IOException | InterruptedException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
+    /** Starts gitlet.Main with ARGS in the directory DIR and returns the
+     *  process, whose error output goes to this one's.
+     *  @param dir : Working directory.
+     *  @param args : Command and operands.*/
+    static Process start(File dir, String... args) {
+        ArrayList<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java")
+                .getPath());
+        ArrayList<String> path = new ArrayList<>();
+        for (String p : System.getProperty("java.class.path")
+                .split(File.pathSeparator)) {
+            path.add(new File(p).getAbsolutePath());
+        }
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, path));
+        command.add("gitlet.Main");
+        command.addAll(Arrays.asList(args));
+        try {
+            return new ProcessBuilder(command).directory(dir)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        } catch (IOException excp) {
+            throw new AssertionError(excp);
+        }
+    }
+
+    /** Writes TEXT to the file NAME in DIR.
+     *  @param dir : Directory.
+     *  @param name : Path below DIR.
+     *  @param text : Contents.*/
+    static void write(File dir, String name, String text) {
+        File f = new File(dir, name);
+        f.getParentFile().mkdirs();
+        Utils.writeContents(f, text);
+    }
+
+    /** Returns the contents of the file NAME in DIR as text.
+     *  @param dir : Directory.
+     *  @param name : Path below DIR.*/
+    static String read(File dir, String name) {
+        return Utils.readContentsAsString(new File(dir, name));
+    }
+
+}